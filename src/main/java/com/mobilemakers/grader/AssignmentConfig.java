@@ -1,5 +1,7 @@
 package com.mobilemakers.grader;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,8 +13,19 @@ public class AssignmentConfig {
     private final String id;
     private final String name;
     private final String promptClassName;
+    private final ReasoningBudget reasoningBudget;
+    private final SourceOptions sourceOptions;
 
     public AssignmentConfig(String id, String name, String promptClassName) {
+        this(id, name, promptClassName, ReasoningBudget.UNLIMITED);
+    }
+
+    public AssignmentConfig(String id, String name, String promptClassName, ReasoningBudget reasoningBudget) {
+        this(id, name, promptClassName, reasoningBudget, SourceOptions.VERBATIM);
+    }
+
+    public AssignmentConfig(String id, String name, String promptClassName, ReasoningBudget reasoningBudget,
+                            SourceOptions sourceOptions) {
         if (id == null || id.isBlank()) {
             throw new IllegalArgumentException("Assignment ID cannot be null or blank");
         }
@@ -26,6 +39,8 @@ public class AssignmentConfig {
         this.id = id;
         this.name = name;
         this.promptClassName = promptClassName;
+        this.reasoningBudget = reasoningBudget == null ? ReasoningBudget.UNLIMITED : reasoningBudget;
+        this.sourceOptions = sourceOptions == null ? SourceOptions.VERBATIM : sourceOptions;
     }
 
     public String getId() {
@@ -40,6 +55,23 @@ public class AssignmentConfig {
         return promptClassName;
     }
 
+    /**
+     * Reasoning budget configured for this assignment only.
+     * Unset fields fall back to the global REASONING_EFFORT / MAX_OUTPUT_TOKENS defaults.
+     */
+    public ReasoningBudget getReasoningBudget() {
+        return reasoningBudget;
+    }
+
+    /**
+     * How submission code is prepared for this assignment's prompt.
+     * Unset fields fall back to the global MINIFY_SUBMISSIONS / MAX_SUBMISSION_CHARS defaults; the starter project
+     * defaults to starters/{sanitized name} when that folder exists.
+     */
+    public SourceOptions getSourceOptions() {
+        return sourceOptions;
+    }
+
     /**
      * Sanitizes assignment name for use in folder paths.
      * Replaces spaces with underscores and removes special characters.
@@ -47,6 +79,10 @@ public class AssignmentConfig {
      * @return Sanitized name safe for file system use
      */
     public String getSanitizedName() {
+        return sanitize(name);
+    }
+
+    private static String sanitize(String name) {
         return name.replaceAll("\\s+", "_")
                    .replaceAll("[^a-zA-Z0-9_-]", "");
     }
@@ -57,15 +93,21 @@ public class AssignmentConfig {
      * - ASSIGNMENT_1_ID
      * - ASSIGNMENT_1_NAME
      * - ASSIGNMENT_1_PROMPT
+     * - ASSIGNMENT_1_REASONING_EFFORT (optional: minimal, low, medium, high)
+     * - ASSIGNMENT_1_MAX_OUTPUT_TOKENS (optional)
+     * - ASSIGNMENT_1_MINIFY (optional: true/false, defaults to MINIFY_SUBMISSIONS)
+     * - ASSIGNMENT_1_STARTER (optional: starter project folder, defaults to starters/{sanitized name} if present)
+     * - ASSIGNMENT_1_MAX_SUBMISSION_CHARS (optional: merged code size budget, defaults to MAX_SUBMISSION_CHARS)
      *
      * Numbering must be sequential starting from 1.
-     * All three fields must be present for each assignment.
+     * The ID, NAME and PROMPT fields must be present for each assignment.
      *
      * @return List of assignment configurations
      * @throws IllegalStateException if configuration is invalid
      */
     public static List<AssignmentConfig> loadFromEnvironment() {
         List<AssignmentConfig> assignments = new ArrayList<>();
+        SourceOptions defaultSourceOptions = SourceOptions.fromEnvironment();
 
         int assignmentNumber = 1;
         while (true) {
@@ -97,7 +139,25 @@ public class AssignmentConfig {
                 );
             }
 
-            assignments.add(new AssignmentConfig(id, name, promptClassName));
+            ReasoningBudget reasoningBudget;
+            try {
+                reasoningBudget = ReasoningBudget.parse(
+                        Config.get("ASSIGNMENT_" + assignmentNumber + "_REASONING_EFFORT"),
+                        Config.get("ASSIGNMENT_" + assignmentNumber + "_MAX_OUTPUT_TOKENS"));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalStateException(
+                    String.format("Invalid reasoning budget for assignment %d: %s", assignmentNumber, ex.getMessage()),
+                    ex
+                );
+            }
+
+            SourceOptions sourceOptions = new SourceOptions(
+                    Config.getBoolean("ASSIGNMENT_" + assignmentNumber + "_MINIFY", defaultSourceOptions.minify()),
+                    starterDirectory(Config.get("ASSIGNMENT_" + assignmentNumber + "_STARTER"), name, assignmentNumber),
+                    Math.max(0, Config.getInt("ASSIGNMENT_" + assignmentNumber + "_MAX_SUBMISSION_CHARS", defaultSourceOptions.maxChars())),
+                    List.of());
+
+            assignments.add(new AssignmentConfig(id, name, promptClassName, reasoningBudget, sourceOptions));
             assignmentNumber++;
         }
 
@@ -111,8 +171,23 @@ public class AssignmentConfig {
         return assignments;
     }
 
+    private static Path starterDirectory(String configured, String name, int assignmentNumber) {
+        if (configured != null && !configured.isBlank()) {
+            Path directory = Path.of(configured.trim());
+            if (!Files.isDirectory(directory)) {
+                throw new IllegalStateException(
+                    String.format("Starter folder for assignment %d does not exist: %s", assignmentNumber, directory)
+                );
+            }
+            return directory;
+        }
+        Path conventional = Path.of("starters", sanitize(name));
+        return Files.isDirectory(conventional) ? conventional : null;
+    }
+
     @Override
     public String toString() {
-        return String.format("Assignment[id=%s, name=%s, prompt=%s]", id, name, promptClassName);
+        return String.format("Assignment[id=%s, name=%s, prompt=%s, reasoning=%s, source=%s]",
+                id, name, promptClassName, reasoningBudget, sourceOptions.variant());
     }
 }
@@ -1,5 +1,10 @@
 package com.mobilemakers.grader;
 
+import com.mobilemakers.grader.model.GradingResult;
+import com.mobilemakers.grader.prompts.PromptConstants;
+
+import java.util.Locale;
+
 /**
  * Provides the assignment prompt injected with the student's Swift code.
  * Supports dynamic prompt loading for batch grading mode.
@@ -20,6 +25,15 @@ public class AssignmentPrompt {
         this.promptText = promptText;
     }
 
+    /**
+     * Short fingerprint of the rubric text, used to notice when a cached tuning result no longer applies.
+     *
+     * @return Hex hash of the prompt text
+     */
+    public String fingerprint() {
+        return Integer.toHexString(promptText.hashCode());
+    }
+
     /**
      * Builds the complete prompt by injecting the student's Swift code.
      *
@@ -28,6 +42,42 @@ public class AssignmentPrompt {
      */
     public String buildPrompt(String swiftCode) {
         String safeCode = swiftCode == null || swiftCode.isBlank() ? "// No code submitted" : swiftCode;
+        if (safeCode.contains(PromptConstants.STARTER_DIFF_LABEL) || safeCode.contains(PromptConstants.UNCHANGED_STARTER_FILES)) {
+            // Explain the diff format only when starter code was actually removed
+            safeCode = PromptConstants.STARTER_DIFF_NOTE + safeCode;
+        }
         return promptText.replace("%s", safeCode);
     }
+
+    /**
+     * Builds the first-phase prompt for two-phase grading.
+     * The rubric is unchanged, but the model is told to return only the score fields.
+     *
+     * @param swiftCode The student's Swift code to grade
+     * @return The score-only prompt
+     */
+    public String buildScoreOnlyPrompt(String swiftCode) {
+        return buildPrompt(swiftCode) + PromptConstants.SCORE_ONLY_RESPONSE_FORMAT;
+    }
+
+    /**
+     * Builds the second-phase prompt for two-phase grading.
+     * Asks the model for feedback that matches a result produced by {@link #buildScoreOnlyPrompt(String)}.
+     *
+     * @param swiftCode The student's Swift code that was graded
+     * @param result The score-only result from the first phase
+     * @return The feedback-only prompt
+     */
+    public String buildFeedbackPrompt(String swiftCode, GradingResult result) {
+        String stretchGoals = result.stretchGoalsCompleted().isEmpty()
+                ? "none"
+                : String.join(", ", result.stretchGoalsCompleted());
+        String feedbackFormat = PromptConstants.FEEDBACK_ONLY_RESPONSE_FORMAT.formatted(
+                String.format(Locale.US, "%.1f", result.score()),
+                String.format(Locale.US, "%.0f", result.maxScore()),
+                result.mvpComplete(),
+                stretchGoals,
+                result.compileIssues());
+        return buildPrompt(swiftCode) + feedbackFormat;
+    }
 }
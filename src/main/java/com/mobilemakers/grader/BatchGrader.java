@@ -11,6 +11,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Orchestrates batch grading across multiple assignments.
@@ -23,16 +24,17 @@ public class BatchGrader {
 
     private final SwiftFileReader swiftFileReader;
     private final OpenAIGrader openAIGrader;
-    private final LMStudioGrader lmStudioGrader;
+    private final Grader localGrader;
     private final SchoologySubmissionDownloader submissionDownloader;
     private final SubmissionCache submissionCache;
     private final List<AssignmentSummary> completedAssignments;
     private final List<AssignmentSummary> skippedAssignments;
+    private Duration modelColdStart;
 
     public BatchGrader() {
         this.swiftFileReader = new SwiftFileReader();
         this.openAIGrader = new OpenAIGrader();
-        this.lmStudioGrader = new LMStudioGrader();
+        this.localGrader = createLocalGrader();
         this.submissionCache = new SubmissionCache("results");
         this.completedAssignments = new ArrayList<>();
         this.skippedAssignments = new ArrayList<>();
@@ -74,6 +76,44 @@ public class BatchGrader {
             return;
         }
 
+        // Load the local model once up front so the first student doesn't absorb the load time
+        boolean useLocalModel = Config.getBoolean("USE_LOCAL_MODEL") || Config.getBoolean("HYBRID_GRADING");
+        if (useLocalModel) {
+            warmUpLocalModel(assignments.size());
+        }
+
+        try {
+            processAssignments(assignments);
+        } finally {
+            if (useLocalModel) {
+                localGrader.stopKeepAlive();
+            }
+        }
+
+        // Print final summary
+        printSummary(startTime);
+    }
+
+    /**
+     * Warms up the local model and keeps it resident between assignments.
+     * Failures are logged only; grading will surface connection problems per student.
+     */
+    private void warmUpLocalModel(int assignmentCount) {
+        if (Config.getBoolean("LM_STUDIO_WARM_UP", true)) {
+            try {
+                modelColdStart = localGrader.warmUp();
+            } catch (Exception ex) {
+                LOGGER.warn("Local model warm-up failed: {}", ex.getMessage());
+            }
+        }
+
+        int keepAliveMinutes = Config.getInt("LM_STUDIO_KEEP_ALIVE_MINUTES", 5);
+        if (assignmentCount > 1 && keepAliveMinutes > 0) {
+            localGrader.startKeepAlive(Duration.ofMinutes(keepAliveMinutes));
+        }
+    }
+
+    private void processAssignments(List<AssignmentConfig> assignments) {
         // Process each assignment
         for (int i = 0; i < assignments.size(); i++) {
             AssignmentConfig assignment = assignments.get(i);
@@ -96,24 +136,39 @@ public class BatchGrader {
                 // Continue with next assignment
             }
         }
-
-        // Print final summary
-        printSummary(startTime);
     }
 
     /**
      * Processes a single assignment: download, extract, load prompt, grade.
      */
     private void processAssignment(AssignmentConfig assignment) throws Exception {
+        if (submissionDownloader != null && Config.getBoolean("GRADE_FROM_ARCHIVE")) {
+            // Step 1: Read the class archive in place instead of extracting it
+            LOGGER.info("→ Downloading submissions from Schoology...");
+            try (SubmissionArchive archive = submissionDownloader.downloadArchiveIfNeeded(
+                    assignment.getId(), assignment.getName())) {
+                gradeSubmissions(assignment, archive.root());
+            }
+            return;
+        }
+
         // Step 1: Get submissions directory
-        Path submissionsDir = getSubmissionsDirectory(assignment);
+        gradeSubmissions(assignment, getSubmissionsDirectory(assignment));
+    }
 
+    /**
+     * Grades the student folders of one assignment: verify, load prompt, grade.
+     */
+    private void gradeSubmissions(AssignmentConfig assignment, Path submissionsDir) throws Exception {
         // Step 2: Verify submissions directory exists and has content
         if (!Files.exists(submissionsDir)) {
             throw new Exception("Submissions directory does not exist: " + submissionsDir);
         }
 
-        long submissionCount = Files.list(submissionsDir).count();
+        long submissionCount;
+        try (Stream<Path> entries = Files.list(submissionsDir)) {
+            submissionCount = entries.filter(Files::isDirectory).count();
+        }
         if (submissionCount == 0) {
             throw new Exception("Submissions directory is empty: " + submissionsDir);
         }
@@ -135,13 +190,15 @@ public class BatchGrader {
 
         // Step 5: Create GradeProcessor with assignment-specific parameters
         GradeProcessor processor = new GradeProcessor(
-                swiftFileReader,
+                swiftFileReader.withOptions(assignment.getSourceOptions()
+                        .withRelevanceKeywords(RelevanceRanker.keywords(promptText))),
                 assignmentPrompt,
                 openAIGrader,
-                lmStudioGrader,
+                localGrader,
                 assignment.getName(),
                 assignment.getId(),
-                assignment.getName()
+                assignment.getName(),
+                assignment.getReasoningBudget()
         );
 
         // Step 6: Create results directory for this assignment
@@ -177,6 +234,25 @@ public class BatchGrader {
         }
     }
 
+    /**
+     * Creates the local model backend selected by LOCAL_MODEL_BACKEND (lmstudio, llamacpp or ollama).
+     */
+    private static Grader createLocalGrader() {
+        String backend = Config.get("LOCAL_MODEL_BACKEND", "lmstudio").trim().toLowerCase();
+        switch (backend) {
+            case "llamacpp":
+            case "llama.cpp":
+                return new LlamaCppGrader();
+            case "ollama":
+                return new OllamaGrader();
+            case "lmstudio":
+                return new LMStudioGrader();
+            default:
+                LOGGER.warn("Unknown LOCAL_MODEL_BACKEND '{}', falling back to LM Studio", backend);
+                return new LMStudioGrader();
+        }
+    }
+
     /**
      * Checks if Schoology configuration is present.
      */
@@ -226,6 +302,10 @@ public class BatchGrader {
         LOGGER.info("Successfully graded: {}", completedAssignments.size());
         LOGGER.info("Skipped (errors): {}", skippedAssignments.size());
         LOGGER.info("Total time: {}m {}s", minutes, seconds);
+        if (modelColdStart != null) {
+            LOGGER.info("Model warm-up (cold start): {}.{}s",
+                    modelColdStart.toSeconds(), String.format("%03d", modelColdStart.toMillisPart()));
+        }
 
         if (!completedAssignments.isEmpty()) {
             LOGGER.info("");
@@ -74,4 +74,44 @@ public class Config {
         }
         return "true".equalsIgnoreCase(value);
     }
+
+    /**
+     * Get an integer environment variable with a default value.
+     * Falls back to the default if the value is missing or not a number.
+     *
+     * @param key The environment variable name
+     * @param defaultValue The default value if not found or invalid
+     * @return The integer value
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a decimal environment variable with a default value.
+     * Falls back to the default if the value is missing or not a number.
+     *
+     * @param key The environment variable name
+     * @param defaultValue The default value if not found or invalid
+     * @return The double value
+     */
+    public static double getDouble(String key, double defaultValue) {
+        String value = get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
 }
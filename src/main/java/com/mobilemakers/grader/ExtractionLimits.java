@@ -0,0 +1,211 @@
+package com.mobilemakers.grader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps on how much archive content is inflated, so one oversized upload or ZIP bomb cannot exhaust the heap
+ * or disk for the whole batch.
+ *
+ * Every byte inflated from a source or project file counts against three limits: the entry itself, the
+ * student's submission and the whole run. A ZIP nested in another ZIP is only held to the per-entry limit, so
+ * its bytes are not counted a second time when its own entries are inflated. Entries visited are counted per
+ * submission too, which stops archives with millions of tiny entries. A limit that is hit never fails the student; the affected entry is left out and the reason
+ * is recorded on the submission's {@link Budget}.
+ */
+final class ExtractionLimits {
+
+    private static final int MAX_REPORTED_TRUNCATIONS = 5;
+
+    private final long maxEntryBytes;
+    private final long maxSubmissionBytes;
+    private final int maxSubmissionEntries;
+    private final long maxRunBytes;
+    private final AtomicLong runBytes = new AtomicLong();
+    private final AtomicInteger truncatedSubmissions = new AtomicInteger();
+
+    ExtractionLimits(long maxEntryBytes, long maxSubmissionBytes, int maxSubmissionEntries, long maxRunBytes) {
+        this.maxEntryBytes = maxEntryBytes;
+        this.maxSubmissionBytes = maxSubmissionBytes;
+        this.maxSubmissionEntries = maxSubmissionEntries;
+        this.maxRunBytes = maxRunBytes;
+    }
+
+    /**
+     * Limits from ARCHIVE_MAX_ENTRY_MB, ARCHIVE_MAX_SUBMISSION_MB, ARCHIVE_MAX_SUBMISSION_ENTRIES and ARCHIVE_MAX_RUN_MB.
+     */
+    static ExtractionLimits fromEnvironment() {
+        return new ExtractionLimits(
+                megabytes(Config.getInt("ARCHIVE_MAX_ENTRY_MB", 64)),
+                megabytes(Config.getInt("ARCHIVE_MAX_SUBMISSION_MB", 256)),
+                Config.getInt("ARCHIVE_MAX_SUBMISSION_ENTRIES", 20_000),
+                megabytes(Config.getInt("ARCHIVE_MAX_RUN_MB", 8 * 1024)));
+    }
+
+    private static long megabytes(int megabytes) {
+        return Math.max(1, megabytes) * 1024L * 1024L;
+    }
+
+    Budget newBudget() {
+        return new Budget();
+    }
+
+    String getSummary() {
+        return String.format("Archive limits: %d MB inflated this run, %d submission(s) truncated",
+                runBytes.get() / (1024 * 1024), truncatedSubmissions.get());
+    }
+
+    /**
+     * Thrown by a limited stream when a cap is reached. Callers catch it, drop the entry and record the reason.
+     */
+    static final class LimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Archive usage of one submission.
+     */
+    final class Budget {
+        private long bytes;
+        private int entries;
+        private final List<String> truncations = new ArrayList<>();
+        private int truncationCount;
+
+        /**
+         * Counts one archive entry.
+         *
+         * @return False once the submission has visited too many entries; stop reading the archive
+         */
+        boolean countEntry(String archiveName) {
+            entries++;
+            if (entries > maxSubmissionEntries) {
+                if (entries == maxSubmissionEntries + 1) {
+                    truncate("stopped reading " + archiveName + " after " + maxSubmissionEntries + " archive entries");
+                }
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Checks an entry's declared size before it is opened.
+         *
+         * @return False if the entry is already known to exceed a limit; it has been recorded as truncated
+         */
+        boolean admits(String entryName, long declaredSize) {
+            if (declaredSize > maxEntryBytes) {
+                truncate(entryName + " skipped (" + declaredSize / 1024 + " KB, per-entry limit " + maxEntryBytes / 1024 + " KB)");
+                return false;
+            }
+            if (declaredSize > 0 && bytes + declaredSize > maxSubmissionBytes) {
+                truncate(entryName + " skipped (submission limit of " + maxSubmissionBytes / (1024 * 1024) + " MB reached)");
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Wraps an entry stream so reading past any limit throws {@link LimitExceededException}.
+         * Declared sizes can lie; this counts the bytes actually inflated.
+         */
+        InputStream limit(InputStream input, String entryName) {
+            return new LimitedInputStream(input, entryName, true);
+        }
+
+        /**
+         * Wraps a nested archive's stream with the per-entry limit only. What is inflated from its entries
+         * is charged to the submission and the run instead.
+         */
+        InputStream cap(InputStream input, String entryName) {
+            return new LimitedInputStream(input, entryName, false);
+        }
+
+        void truncate(String reason) {
+            if (truncationCount++ == 0) {
+                truncatedSubmissions.incrementAndGet();
+            }
+            if (truncations.size() < MAX_REPORTED_TRUNCATIONS) {
+                truncations.add(reason);
+            }
+        }
+
+        boolean isTruncated() {
+            return truncationCount > 0;
+        }
+
+        /**
+         * Human-readable reasons, with a count of any beyond the first few.
+         */
+        String describeTruncations() {
+            String described = String.join("; ", truncations);
+            if (truncationCount > truncations.size()) {
+                described += "; and " + (truncationCount - truncations.size()) + " more";
+            }
+            return described;
+        }
+
+        private final class LimitedInputStream extends FilterInputStream {
+            private final String entryName;
+            private final boolean charged;
+            private long entryBytes;
+
+            private LimitedInputStream(InputStream input, String entryName, boolean charged) {
+                super(input);
+                this.entryName = entryName;
+                this.charged = charged;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    charge(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int count = super.read(buffer, offset, length);
+                if (count > 0) {
+                    charge(count);
+                }
+                return count;
+            }
+
+            @Override
+            public long skip(long count) throws IOException {
+                long skipped = super.skip(count);
+                charge(skipped);
+                return skipped;
+            }
+
+            private void charge(long count) throws LimitExceededException {
+                entryBytes += count;
+                if (entryBytes > maxEntryBytes) {
+                    throw new LimitExceededException(entryName + " exceeds the per-entry limit of " + maxEntryBytes / 1024 + " KB");
+                }
+                if (!charged) {
+                    return;
+                }
+                bytes += count;
+                long run = runBytes.addAndGet(count);
+                if (bytes > maxSubmissionBytes) {
+                    throw new LimitExceededException(entryName + " exceeds the submission limit of " + maxSubmissionBytes / (1024 * 1024) + " MB");
+                }
+                if (run > maxRunBytes) {
+                    throw new LimitExceededException(entryName + " skipped, the run limit of " + maxRunBytes / (1024 * 1024) + " MB is reached");
+                }
+            }
+        }
+    }
+}
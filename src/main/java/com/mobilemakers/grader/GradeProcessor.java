@@ -15,7 +15,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Coordinates grading across all student submissions and generates CSV output.
@@ -28,15 +36,23 @@ public class GradeProcessor {
     private final SwiftFileReader fileReader;
     private final AssignmentPrompt assignmentPrompt;
     private final OpenAIGrader openAIGrader;
-    private final LMStudioGrader lmStudioGrader;
+    private final Grader localGrader;
+    private final Grader activeGrader;
     private final SchoologyCommentUpdater schoologyCommentUpdater;
     private final String schoologyAssignmentColumnName;
     private final String assignmentId;
     private final String assignmentName;
-    private final boolean useLocalModel;
     private final boolean enableSchoologyComments;
     private final boolean enableSchoologyGrades;
+    private final boolean twoPhaseGrading;
+    private final boolean exportDeferredFeedback;
+    private final ReasoningBudget reasoningBudget;
+    private final ReasoningBudgetTuner reasoningTuner;
+    private final String cacheDirectory;
+    private ReasoningBudget activeBudget;
     private GradingCache gradingCache;
+    private final AtomicInteger modelCalls = new AtomicInteger();
+    private final AtomicLong modelNanos = new AtomicLong();
 
     public GradeProcessor(SwiftFileReader fileReader, AssignmentPrompt assignmentPrompt, OpenAIGrader openAIGrader) {
         this(fileReader, assignmentPrompt, openAIGrader, null, "Assignment", null, null);
@@ -45,22 +61,35 @@ public class GradeProcessor {
     public GradeProcessor(SwiftFileReader fileReader,
                           AssignmentPrompt assignmentPrompt,
                           OpenAIGrader openAIGrader,
-                          LMStudioGrader lmStudioGrader,
+                          Grader localGrader,
                           String schoologyAssignmentColumnName) {
-        this(fileReader, assignmentPrompt, openAIGrader, lmStudioGrader, schoologyAssignmentColumnName, null, null);
+        this(fileReader, assignmentPrompt, openAIGrader, localGrader, schoologyAssignmentColumnName, null, null);
     }
 
     public GradeProcessor(SwiftFileReader fileReader,
                           AssignmentPrompt assignmentPrompt,
                           OpenAIGrader openAIGrader,
-                          LMStudioGrader lmStudioGrader,
+                          Grader localGrader,
                           String schoologyAssignmentColumnName,
                           String assignmentId,
                           String assignmentName) {
+        this(fileReader, assignmentPrompt, openAIGrader, localGrader, schoologyAssignmentColumnName,
+                assignmentId, assignmentName, ReasoningBudget.UNLIMITED);
+    }
+
+    public GradeProcessor(SwiftFileReader fileReader,
+                          AssignmentPrompt assignmentPrompt,
+                          OpenAIGrader openAIGrader,
+                          Grader localGrader,
+                          String schoologyAssignmentColumnName,
+                          String assignmentId,
+                          String assignmentName,
+                          ReasoningBudget reasoningBudget) {
         this.fileReader = fileReader;
         this.assignmentPrompt = assignmentPrompt;
         this.openAIGrader = openAIGrader;
-        this.lmStudioGrader = lmStudioGrader;
+        this.localGrader = localGrader;
+        this.cacheDirectory = "results";
         if (schoologyAssignmentColumnName == null || schoologyAssignmentColumnName.isBlank()) {
             this.schoologyAssignmentColumnName = "Assignment";
         } else {
@@ -76,25 +105,54 @@ public class GradeProcessor {
                 ? assignmentName
                 : schoologyAssignmentColumnName;
 
-        // Determine which model to use based on environment variable
-        this.useLocalModel = Config.getBoolean("USE_LOCAL_MODEL");
+        // Determine which model to use based on environment variables
+        boolean useLocalModel = Config.getBoolean("USE_LOCAL_MODEL");
+        boolean hybridGrading = Config.getBoolean("HYBRID_GRADING");
 
-        if (useLocalModel) {
-            LOGGER.info("Using LM Studio local model for grading");
-            if (lmStudioGrader == null) {
-                throw new IllegalStateException("USE_LOCAL_MODEL is true but LMStudioGrader was not provided");
+        if (hybridGrading) {
+            if (localGrader == null || openAIGrader == null) {
+                throw new IllegalStateException("HYBRID_GRADING is true but both a local grader and OpenAIGrader are required");
             }
+            this.activeGrader = new HybridGrader(localGrader, openAIGrader);
+            LOGGER.info("Using hybrid grading: {}", activeGrader.name());
+        } else if (useLocalModel) {
+            if (localGrader == null) {
+                throw new IllegalStateException("USE_LOCAL_MODEL is true but no local grader was provided");
+            }
+            this.activeGrader = localGrader;
+            LOGGER.info("Using local model for grading: {}", activeGrader.name());
         } else {
-            LOGGER.info("Using OpenAI API for grading");
             if (openAIGrader == null) {
                 throw new IllegalStateException("USE_LOCAL_MODEL is false but OpenAIGrader was not provided");
             }
+            this.activeGrader = openAIGrader;
+            LOGGER.info("Using OpenAI API for grading");
+        }
+
+        // Per-assignment reasoning budget, falling back to the global defaults
+        ReasoningBudget assignmentBudget = reasoningBudget == null ? ReasoningBudget.UNLIMITED : reasoningBudget;
+        this.reasoningBudget = assignmentBudget.orElse(ReasoningBudget.fromEnvironment());
+        this.activeBudget = this.reasoningBudget;
+        if (Config.getBoolean("AUTO_TUNE_REASONING") && !this.reasoningBudget.hasEffort()) {
+            this.reasoningTuner = ReasoningBudgetTuner.fromEnvironment("results");
+            LOGGER.info("Reasoning effort auto-tuning is ENABLED");
+        } else {
+            this.reasoningTuner = null;
+            LOGGER.info("Reasoning budget: {}", this.reasoningBudget);
         }
 
         // Initialize Schoology integration (comments and/or grades)
         this.enableSchoologyComments = Config.getBoolean("ENABLE_SCHOOLOGY_COMMENTS");
         this.enableSchoologyGrades = Config.getBoolean("ENABLE_SCHOOLOGY_GRADES");
 
+        // Two-phase grading: score first, feedback only for students who need it
+        this.twoPhaseGrading = Config.getBoolean("TWO_PHASE_GRADING");
+        this.exportDeferredFeedback = Config.getBoolean("TWO_PHASE_EXPORT_FEEDBACK");
+        if (twoPhaseGrading) {
+            LOGGER.info("Two-phase grading is ENABLED (feedback generated for {})",
+                    exportDeferredFeedback ? "all graded students" : "students receiving Schoology comments");
+        }
+
         if (enableSchoologyComments || enableSchoologyGrades) {
             String baseUrl = Config.get("SCHOOLOGY_BASE_URL");
             String courseId = Config.get("SCHOOLOGY_COURSE_ID");
@@ -141,6 +199,36 @@ public class GradeProcessor {
         }
     }
 
+    /**
+     * Grades with a single backend and explicit two-phase settings, without Schoology integration or
+     * reasoning auto-tuning. The grading cache is kept in cacheDirectory instead of results/.
+     */
+    GradeProcessor(SwiftFileReader fileReader,
+                   AssignmentPrompt assignmentPrompt,
+                   Grader grader,
+                   String assignmentId,
+                   boolean twoPhaseGrading,
+                   boolean exportDeferredFeedback,
+                   String cacheDirectory) {
+        this.fileReader = fileReader;
+        this.assignmentPrompt = assignmentPrompt;
+        this.openAIGrader = null;
+        this.localGrader = grader;
+        this.activeGrader = grader;
+        this.schoologyAssignmentColumnName = "Assignment";
+        this.assignmentId = assignmentId;
+        this.assignmentName = "Assignment";
+        this.reasoningBudget = ReasoningBudget.UNLIMITED;
+        this.activeBudget = ReasoningBudget.UNLIMITED;
+        this.reasoningTuner = null;
+        this.enableSchoologyComments = false;
+        this.enableSchoologyGrades = false;
+        this.twoPhaseGrading = twoPhaseGrading;
+        this.exportDeferredFeedback = exportDeferredFeedback;
+        this.schoologyCommentUpdater = null;
+        this.cacheDirectory = cacheDirectory;
+    }
+
     /**
      * Reads Schoology session cookie from file or environment variable.
      * Tries .schoology-cookie file first, falls back to SCHOOLOGY_SESSION_COOKIE env var.
@@ -173,11 +261,16 @@ public class GradeProcessor {
     public void gradeAll(Path submissionsPath, Path resultsDir) throws IOException {
         // Initialize grading cache in persistent location (not timestamped folder)
         // This ensures cache persists across runs for cost protection
-        gradingCache = new GradingCache("results");
+        gradingCache = new GradingCache(cacheDirectory);
 
-        Map<String, String> submissions = fileReader.readStudentSubmissions(submissionsPath);
+        // Only the directory listing is read here; each student's code is loaded by the worker that grades it
+        List<StudentSubmission> submissions;
+        try (Stream<StudentSubmission> stream = fileReader.streamStudentSubmissions(submissionsPath)) {
+            submissions = stream.collect(Collectors.toList());
+        }
         List<GradeRecord> records = new ArrayList<>();
         List<SchoologyRecord> schoologyRecords = new ArrayList<>();
+        List<PendingFeedback> pendingFeedback = new ArrayList<>();
 
         // Fetch student UID mappings from Schoology if any integration is enabled
         if ((enableSchoologyComments || enableSchoologyGrades) && schoologyCommentUpdater != null) {
@@ -189,107 +282,153 @@ public class GradeProcessor {
             }
         }
 
+        // Calibrate reasoning effort on a few submissions; their reference results count as real grades
+        Map<String, GradingResult> calibratedResults = tuneReasoningBudget(submissions);
+
         int totalStudents = submissions.size();
         int skippedCount = 0;
         int gradedCount = 0;
-
-        for (Map.Entry<String, String> entry : submissions.entrySet()) {
-            String studentKey = entry.getKey();
-            String schoolUid = extractUniqueUserId(studentKey);
-            Path studentDir = submissionsPath.resolve(studentKey);
-
-            // Check revision status before processing
-            int highestRevision = 0;
-            try {
-                highestRevision = fileReader.findHighestRevision(studentDir);
-                int lastGradedRevision = gradingCache.getLastGradedRevision(schoolUid, this.assignmentId);
-
-                if (highestRevision <= lastGradedRevision) {
-                    LOGGER.info("⊘ Skipped {} - Revision {} already graded (last graded: revision {})",
-                            studentKey, highestRevision, lastGradedRevision);
-                    skippedCount++;
-                    continue;
-                } else if (lastGradedRevision > 0) {
-                    LOGGER.info("→ New submission detected for {} - Revision {} (previously graded: revision {})",
-                            studentKey, highestRevision, lastGradedRevision);
+        int resumedCount = 0;
+
+        // Model calls run on a worker pool sized to the backend; results are processed here in folder order
+        int concurrency = activeGrader.maxConcurrency();
+        ExecutorService workers = newWorkerPool(concurrency);
+        long gradingStart = System.nanoTime();
+        List<GradingTask> tasks = new ArrayList<>();
+        try {
+            for (StudentSubmission submission : submissions) {
+                String studentKey = submission.studentKey();
+                String schoolUid = extractUniqueUserId(studentKey);
+
+                // Check revision status before processing; only the manifest is read here, never the code
+                int highestRevision = 0;
+                String fingerprint = null;
+                String sourceHash = null;
+                try {
+                    highestRevision = submission.highestRevision();
+                    fingerprint = submission.manifest().fingerprint();
+                    sourceHash = submission.sourceHash();
+                    int lastGradedRevision = gradingCache.getLastGradedRevision(schoolUid, this.assignmentId);
+
+                    if (isUpToDate(schoolUid, highestRevision, fingerprint, sourceHash)) {
+                        GradingResult owed = gradingCache.getPendingFeedback(schoolUid, this.assignmentId);
+                        if (owed != null && needsDeferredFeedback()) {
+                            // Score was posted by an earlier run; only its feedback is generated now
+                            LOGGER.info("↻ Resuming feedback for {} - Revision {} already scored", studentKey, highestRevision);
+                            tasks.add(new GradingTask(submission, schoolUid, highestRevision, fingerprint, sourceHash,
+                                    CompletableFuture.completedFuture(owed), true));
+                            resumedCount++;
+                            continue;
+                        }
+                        LOGGER.info("⊘ Skipped {} - Revision {} already graded (last graded: revision {})",
+                                studentKey, highestRevision, lastGradedRevision);
+                        skippedCount++;
+                        continue;
+                    } else if (highestRevision <= lastGradedRevision) {
+                        LOGGER.info("→ Changed files detected for {} - Revision {} (submission content differs from last grading)",
+                                studentKey, highestRevision);
+                    } else if (lastGradedRevision > 0) {
+                        LOGGER.info("→ New submission detected for {} - Revision {} (previously graded: revision {})",
+                                studentKey, highestRevision, lastGradedRevision);
+                    }
+                } catch (Exception ex) {
+                    LOGGER.warn("Failed to check revision for {}: {}. Will attempt to grade.", studentKey, ex.getMessage());
+                    highestRevision = 1; // Assume revision 1 if check fails
                 }
-            } catch (Exception ex) {
-                LOGGER.warn("Failed to check revision for {}: {}. Will attempt to grade.", studentKey, ex.getMessage());
-                highestRevision = 1; // Assume revision 1 if check fails
-            }
-
-            String swiftCode = entry.getValue();
-            if (swiftCode.isBlank()) {
-                LOGGER.warn("Skipping {} because no Swift code was extracted.", studentKey);
-                records.add(GradeRecord.failed(studentKey, "No Swift files located in latest submission"));
-                schoologyRecords.add(SchoologyRecord.failed(studentKey));
-                continue;
-            }
-            String prompt = assignmentPrompt.buildPrompt(swiftCode);
-
-            final int currentRevision = highestRevision;
 
-            try {
-                GradingResult result;
-                if (useLocalModel) {
-                    result = lmStudioGrader.gradeSubmission(studentKey, prompt);
+                Future<GradingResult> result;
+                if (calibratedResults.containsKey(studentKey)) {
+                    result = CompletableFuture.completedFuture(calibratedResults.get(studentKey));
                 } else {
-                    result = openAIGrader.gradeSubmission(studentKey, prompt);
+                    result = workers.submit(() -> loadAndGrade(submission));
                 }
-                records.add(GradeRecord.from(studentKey, result));
-                schoologyRecords.add(SchoologyRecord.from(studentKey, result));
-                logResult(studentKey, result);
+                tasks.add(new GradingTask(submission, schoolUid, highestRevision, fingerprint, sourceHash, result, false));
+            }
 
-                // Update cache with successful grading
-                gradingCache.updateGrade(
-                    schoolUid,
-                    studentKey,
-                    this.assignmentId,
-                    schoologyAssignmentColumnName,
-                    currentRevision,
-                    result.score()
-                );
-                gradedCount++;
-
-                // Post grade to Schoology if enabled
-                if (enableSchoologyGrades && schoologyCommentUpdater != null) {
-                    try {
-                        schoologyCommentUpdater.postGrade(schoolUid, result.score());
-                    } catch (Exception gradeEx) {
-                        LOGGER.warn("Failed to post Schoology grade for {}: {}", studentKey, gradeEx.getMessage());
-                        // Continue processing - CSV still works even if grade posting fails
+            for (GradingTask task : tasks) {
+                String studentKey = task.submission().studentKey();
+                String schoolUid = task.schoolUid();
+                try {
+                    GradingResult result = awaitResult(task.result());
+                    if (result == null) {
+                        LOGGER.warn("Skipping {} because no Swift code was extracted.", studentKey);
+                        records.add(GradeRecord.failed(studentKey, "No Swift files located in latest submission"));
+                        schoologyRecords.add(SchoologyRecord.failed(studentKey));
+                        continue;
+                    }
+                    if (task.feedbackOnly()) {
+                        records.add(GradeRecord.scoreOnly(studentKey, result));
+                        schoologyRecords.add(SchoologyRecord.from(studentKey, result));
+                        pendingFeedback.add(new PendingFeedback(task, result, records.size() - 1));
+                        continue;
                     }
-                }
 
-                // Post comment to Schoology if enabled
-                if (enableSchoologyComments && schoologyCommentUpdater != null) {
-                    String feedbackComment = result.feedback().studentSummary();
+                    boolean feedbackDeferred = twoPhaseGrading && !result.hasFeedback();
+                    if (feedbackDeferred) {
+                        records.add(GradeRecord.scoreOnly(studentKey, result));
+                    } else {
+                        records.add(GradeRecord.from(studentKey, result));
+                    }
+                    schoologyRecords.add(SchoologyRecord.from(studentKey, result));
+                    logResult(studentKey, result);
+
+                    // The score is cached right away; feedback still owed is marked so only that phase is retried
+                    boolean feedbackPending = feedbackDeferred && needsDeferredFeedback();
+                    cacheGrade(task, result);
+                    if (feedbackPending) {
+                        gradingCache.setPendingFeedback(schoolUid, this.assignmentId, result);
+                    }
+                    gradedCount++;
 
-                    if (feedbackComment != null && !feedbackComment.isBlank()) {
+                    // Post grade to Schoology if enabled
+                    if (enableSchoologyGrades && schoologyCommentUpdater != null) {
                         try {
-                            schoologyCommentUpdater.postComment(schoolUid, feedbackComment);
-                        } catch (Exception commentEx) {
-                            LOGGER.warn("Failed to post Schoology comment for {}: {}", studentKey, commentEx.getMessage());
-                            // Continue processing - CSV still works even if comment posting fails
+                            schoologyCommentUpdater.postGrade(schoolUid, result.score());
+                        } catch (Exception gradeEx) {
+                            LOGGER.warn("Failed to post Schoology grade for {}: {}", studentKey, gradeEx.getMessage());
+                            // Continue processing - CSV still works even if grade posting fails
                         }
-                    } else {
-                        LOGGER.debug("No feedback summary available for {}, skipping comment post", studentKey);
                     }
+
+                    if (feedbackPending) {
+                        // Feedback is only generated for students whose comments will be posted or exported
+                        pendingFeedback.add(new PendingFeedback(task, result, records.size() - 1));
+                    } else if (!feedbackDeferred) {
+                        postFeedbackComment(studentKey, schoolUid, result);
+                    }
+                } catch (Exception ex) {
+                    LOGGER.error("Grading failed for {}", studentKey, ex);
+                    records.add(GradeRecord.failed(studentKey, ex.getMessage()));
+                    schoologyRecords.add(SchoologyRecord.failed(studentKey));
                 }
-            } catch (Exception ex) {
-                LOGGER.error("Grading failed for {}", studentKey, ex);
-                records.add(GradeRecord.failed(studentKey, ex.getMessage()));
-                schoologyRecords.add(SchoologyRecord.failed(studentKey));
             }
+        } finally {
+            workers.shutdownNow();
         }
+        long gradingNanos = System.nanoTime() - gradingStart;
+
+        // Second phase: generate feedback for the students who need it, after every score is in.
+        // Scores are saved first, so an interrupted run only has feedback left to do.
+        if (!pendingFeedback.isEmpty()) {
+            gradingCache.save();
+        }
+        int feedbackCount = generateDeferredFeedback(pendingFeedback, records);
 
         // Save cache and print summary
         gradingCache.save();
+        fileReader.saveIndex();
         LOGGER.info("═══════════════════════════════════════════");
         LOGGER.info("Grading Summary:");
         LOGGER.info("  Total students: {}", totalStudents);
         LOGGER.info("  Newly graded: {}", gradedCount);
         LOGGER.info("  Skipped (already graded): {}", skippedCount);
+        if (twoPhaseGrading || resumedCount > 0) {
+            LOGGER.info("  Feedback generated (two-phase): {}", feedbackCount);
+        }
+        if (resumedCount > 0) {
+            LOGGER.info("  Feedback resumed from an earlier run: {}", resumedCount);
+        }
+        logModelMetrics(concurrency, gradedCount, gradingNanos);
         LOGGER.info("  " + gradingCache.getSummary());
         LOGGER.info("═══════════════════════════════════════════");
 
@@ -301,6 +440,255 @@ public class GradeProcessor {
         }
     }
 
+    private String buildGradingPrompt(String swiftCode) {
+        return twoPhaseGrading
+                ? assignmentPrompt.buildScoreOnlyPrompt(swiftCode)
+                : assignmentPrompt.buildPrompt(swiftCode);
+    }
+
+    /**
+     * Loads a student's code and grades it. Runs on a worker thread, so at most one submission
+     * per worker is held in memory.
+     *
+     * @return Grading result, or null if the submission contains no Swift code
+     */
+    private GradingResult loadAndGrade(StudentSubmission submission) throws IOException {
+        String swiftCode = submission.loadCode();
+        if (swiftCode.isBlank()) {
+            return null;
+        }
+        return gradeWithActiveModel(submission.studentKey(), buildGradingPrompt(swiftCode));
+    }
+
+    private GradingResult gradeWithActiveModel(String studentKey, String prompt) throws IOException {
+        return gradeWithBudget(studentKey, prompt, activeBudget);
+    }
+
+    private GradingResult gradeWithBudget(String studentKey, String prompt, ReasoningBudget budget) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return activeGrader.gradeSubmission(studentKey, prompt, budget);
+        } finally {
+            modelCalls.incrementAndGet();
+            modelNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private static ExecutorService newWorkerPool(int concurrency) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "grader-worker-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Waits for a worker's result, rethrowing the worker's own exception so it is logged as-is.
+     */
+    private static GradingResult awaitResult(Future<GradingResult> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for grading result", ex);
+        }
+    }
+
+    /**
+     * Logs per-backend latency and throughput so backends can be compared run against run.
+     */
+    private void logModelMetrics(int concurrency, int gradedCount, long gradingNanos) {
+        int calls = modelCalls.get();
+        if (calls == 0) {
+            return;
+        }
+        double averageSeconds = modelNanos.get() / 1e9 / calls;
+        double wallMinutes = gradingNanos / 1e9 / 60.0;
+        LOGGER.info("  Model: {} | {} call(s), {} in parallel", activeGrader.name(), calls, concurrency);
+        LOGGER.info(String.format(Locale.US, "  Model latency: %.1fs avg per call | Throughput: %.1f submissions/min",
+                averageSeconds, wallMinutes > 0 ? gradedCount / wallMinutes : 0.0));
+        String usage = activeGrader.usageSummary();
+        if (usage != null) {
+            LOGGER.info("  {}", usage);
+        }
+    }
+
+    /**
+     * Selects the reasoning budget for this run when auto-tuning is enabled.
+     * Reuses a cached tuning result for the same rubric and model, otherwise calibrates on the
+     * first few students that need grading.
+     *
+     * @return Reference results for the calibration samples, keyed by student folder
+     */
+    private Map<String, GradingResult> tuneReasoningBudget(List<StudentSubmission> submissions) {
+        if (reasoningTuner == null) {
+            return Map.of();
+        }
+
+        String tuningKey = assignmentId + ":" + activeGrader.name();
+        ReasoningBudget tuned = reasoningTuner.getTunedBudget(tuningKey, assignmentPrompt.fingerprint(), reasoningBudget);
+        if (tuned != null) {
+            activeBudget = tuned;
+            LOGGER.info("Using tuned reasoning budget: {}", activeBudget);
+            return Map.of();
+        }
+
+        List<ReasoningBudgetTuner.Sample> samples = new ArrayList<>();
+        for (StudentSubmission submission : submissions) {
+            if (samples.size() >= reasoningTuner.getSampleSize()) {
+                break;
+            }
+            String studentKey = submission.studentKey();
+            if (!needsGrading(submission, extractUniqueUserId(studentKey))) {
+                continue;
+            }
+            String swiftCode;
+            try {
+                swiftCode = submission.loadCode();
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to load {} for reasoning tuning: {}", studentKey, ex.getMessage());
+                continue;
+            }
+            if (!swiftCode.isBlank()) {
+                samples.add(new ReasoningBudgetTuner.Sample(studentKey, buildGradingPrompt(swiftCode)));
+            }
+        }
+
+        if (samples.isEmpty()) {
+            LOGGER.info("No ungraded submissions to tune reasoning effort on, using {}", activeBudget);
+            return Map.of();
+        }
+
+        ReasoningBudgetTuner.TuningOutcome outcome = reasoningTuner.tune(
+                tuningKey, assignmentPrompt.fingerprint(), reasoningBudget, samples, this::gradeWithBudget);
+        activeBudget = outcome.budget();
+        return outcome.referenceResults();
+    }
+
+    private boolean needsGrading(StudentSubmission submission, String schoolUid) {
+        try {
+            return !isUpToDate(schoolUid, submission.highestRevision(),
+                    submission.manifest().fingerprint(), submission.sourceHash());
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * True if the submission was already graded as it is now.
+     *
+     * When both this run and the last grading have a source hash, that decides on its own: identical
+     * files are never re-graded, even if files were re-extracted or the revision number changed.
+     * Otherwise the revision must not be newer and the name/size fingerprint must match. Downloads are
+     * flattened to a single folder and always report revision 1, so a resubmission only shows up in the
+     * hashes. Entries cached before hashes were recorded fall back to the revision check alone.
+     */
+    private boolean isUpToDate(String schoolUid, int highestRevision, String fingerprint, String sourceHash) {
+        String lastSourceHash = gradingCache.getLastGradedSourceHash(schoolUid, assignmentId);
+        if (sourceHash != null && lastSourceHash != null) {
+            return sourceHash.equals(lastSourceHash);
+        }
+        if (highestRevision > gradingCache.getLastGradedRevision(schoolUid, assignmentId)) {
+            return false;
+        }
+        String lastFingerprint = gradingCache.getLastGradedFingerprint(schoolUid, assignmentId);
+        return lastFingerprint == null || lastFingerprint.equals(fingerprint);
+    }
+
+    private boolean needsDeferredFeedback() {
+        return exportDeferredFeedback || (enableSchoologyComments && schoologyCommentUpdater != null);
+    }
+
+    /**
+     * Records a finished grading in the cache, which marks the submission as up to date.
+     */
+    private void cacheGrade(GradingTask task, GradingResult result) {
+        gradingCache.updateGrade(
+            task.schoolUid(),
+            task.submission().studentKey(),
+            this.assignmentId,
+            schoologyAssignmentColumnName,
+            task.revision(),
+            task.fingerprint(),
+            task.sourceHash(),
+            result.score()
+        );
+    }
+
+    /**
+     * Requests feedback for students graded with a score-only prompt and posts/exports it.
+     * Scores are already posted and cached with a pending-feedback marker at this point; the marker is
+     * cleared once feedback succeeds, so a student whose feedback fails here, or whose run is interrupted,
+     * only has the feedback generated on the next run.
+     *
+     * @return Number of students that received generated feedback
+     */
+    private int generateDeferredFeedback(List<PendingFeedback> pendingFeedback, List<GradeRecord> records) {
+        if (pendingFeedback.isEmpty()) {
+            return 0;
+        }
+
+        LOGGER.info("Generating feedback for {} student(s)...", pendingFeedback.size());
+        int generated = 0;
+        for (PendingFeedback pending : pendingFeedback) {
+            String studentKey = pending.task().submission().studentKey();
+            try {
+                // Code is re-read rather than kept from the scoring phase, so memory stays bounded
+                String swiftCode = pending.task().submission().loadCode();
+                String prompt = assignmentPrompt.buildFeedbackPrompt(swiftCode, pending.result());
+                GradingResult feedbackResult = gradeWithActiveModel(studentKey, prompt);
+                pending.result().setFeedback(feedbackResult.feedback());
+                records.set(pending.recordIndex(), GradeRecord.from(studentKey, pending.result()));
+                postFeedbackComment(studentKey, pending.task().schoolUid(), pending.result());
+                cacheGrade(pending.task(), pending.result());
+                generated++;
+            } catch (Exception ex) {
+                LOGGER.warn("Failed to generate feedback for {}: {}. Feedback will be retried next run.",
+                        studentKey, ex.getMessage());
+            }
+        }
+        return generated;
+    }
+
+    private void postFeedbackComment(String studentKey, String schoolUid, GradingResult result) {
+        // Post comment to Schoology if enabled
+        if (enableSchoologyComments && schoologyCommentUpdater != null) {
+            String feedbackComment = result.feedback().studentSummary();
+
+            if (feedbackComment != null && !feedbackComment.isBlank()) {
+                try {
+                    schoologyCommentUpdater.postComment(schoolUid, feedbackComment);
+                } catch (Exception commentEx) {
+                    LOGGER.warn("Failed to post Schoology comment for {}: {}", studentKey, commentEx.getMessage());
+                    // Continue processing - CSV still works even if comment posting fails
+                }
+            } else {
+                LOGGER.debug("No feedback summary available for {}, skipping comment post", studentKey);
+            }
+        }
+    }
+
+    private record GradingTask(StudentSubmission submission,
+                               String schoolUid,
+                               int revision,
+                               String fingerprint,
+                               String sourceHash,
+                               Future<GradingResult> result,
+                               boolean feedbackOnly) {
+    }
+
+    private record PendingFeedback(GradingTask task,
+                                   GradingResult result,
+                                   int recordIndex) {
+    }
+
     private void logResult(String studentKey, GradingResult result) {
         LOGGER.info("{} -> Score: {} / {} | MVP: {} | Stretch Goals: {} | Compile: {}",
                 studentKey,
@@ -347,6 +735,13 @@ public class GradeProcessor {
             );
         }
 
+        private static GradeRecord scoreOnly(String studentKey, GradingResult result) {
+            GradeRecord record = from(studentKey, result);
+            return new GradeRecord(record.studentKey(), record.score(), record.mvp(), record.stretch1(),
+                    record.stretch2(), record.stretch3(), record.compileIssues(),
+                    "Feedback not generated (score-only grading)");
+        }
+
         private static GradeRecord failed(String studentKey, String error) {
             return new GradeRecord(studentKey, "0/10", "false", "false", "false", "false",
                     sanitizeForCsv("error"), sanitizeForCsv(error));
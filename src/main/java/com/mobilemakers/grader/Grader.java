@@ -0,0 +1,65 @@
+package com.mobilemakers.grader;
+
+import com.mobilemakers.grader.model.GradingResult;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * A model backend that grades a complete prompt and returns the parsed result.
+ * Implemented by the OpenAI client and each local server backend (LM Studio, llama.cpp, Ollama).
+ */
+public interface Grader {
+
+    /**
+     * Grades a submission with an explicit reasoning effort and output-token limit.
+     *
+     * @param studentKey Student folder name (for logging)
+     * @param prompt Complete grading prompt
+     * @param budget Reasoning budget; unset fields are not sent
+     * @return Parsed grading result
+     */
+    GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) throws IOException;
+
+    default GradingResult gradeSubmission(String studentKey, String prompt) throws IOException {
+        return gradeSubmission(studentKey, prompt, ReasoningBudget.UNLIMITED);
+    }
+
+    /**
+     * Short backend name used in logs and the grading summary.
+     */
+    String name();
+
+    /**
+     * Number of requests this backend should process at the same time.
+     * GradeProcessor sizes its worker pool from this value.
+     */
+    default int maxConcurrency() {
+        return 1;
+    }
+
+    /**
+     * Loads the model before the first student is graded.
+     *
+     * @return Time spent loading the model (the cold-start time)
+     */
+    default Duration warmUp() throws IOException {
+        return Duration.ZERO;
+    }
+
+    /**
+     * Keeps the model resident while a multi-assignment batch is running.
+     */
+    default void startKeepAlive(Duration interval) {
+    }
+
+    default void stopKeepAlive() {
+    }
+
+    /**
+     * Backend-specific usage line for the grading summary (e.g. dispatch counts or spend), or null.
+     */
+    default String usageSummary() {
+        return null;
+    }
+}
@@ -3,6 +3,7 @@ package com.mobilemakers.grader;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mobilemakers.grader.model.GradingResult;
 
 import java.io.File;
 import java.io.IOException;
@@ -23,8 +24,11 @@ import java.util.Map;
  *         "8017693698": {
  *           "assignment_name": "Constants Variables Datatypes",
  *           "last_graded_revision": 2,
+ *           "last_graded_fingerprint": "3f2a9c...",
+ *           "last_graded_source_hash": "9b71d2...",
  *           "grade": 10.0,
- *           "graded_timestamp": "2025-10-11T15:30:00Z"
+ *           "graded_timestamp": "2025-10-11T15:30:00Z",
+ *           "pending_feedback": null
  *         }
  *       }
  *     }
@@ -32,6 +36,9 @@ import java.util.Map;
  *   "cache_version": "1.0",
  *   "last_updated": "2025-10-11T15:30:00Z"
  * }
+ *
+ * With two-phase grading, "pending_feedback" holds the score-only result of a student whose score is posted
+ * but whose feedback is still owed. The next run generates only the feedback from it.
  */
 public class GradingCache {
 
@@ -130,6 +137,90 @@ public class GradingCache {
         return assignment.last_graded_revision;
     }
 
+    /**
+     * Get the submission fingerprint recorded when the assignment was last graded.
+     *
+     * @param schoolUid Student's school UID
+     * @param assignmentId Assignment ID
+     * @return Fingerprint, or null if never graded or graded before fingerprints were recorded
+     */
+    public String getLastGradedFingerprint(String schoolUid, String assignmentId) {
+        StudentData student = data.students.get(schoolUid);
+        if (student == null) {
+            return null;
+        }
+
+        AssignmentData assignment = student.assignments.get(assignmentId);
+        if (assignment == null) {
+            return null;
+        }
+
+        return assignment.last_graded_fingerprint;
+    }
+
+    /**
+     * Get the source hash of the submission that was last graded.
+     *
+     * @param schoolUid Student's school UID
+     * @param assignmentId Assignment ID
+     * @return Source hash, or null if never graded or graded without the submission index
+     */
+    public String getLastGradedSourceHash(String schoolUid, String assignmentId) {
+        StudentData student = data.students.get(schoolUid);
+        if (student == null) {
+            return null;
+        }
+
+        AssignmentData assignment = student.assignments.get(assignmentId);
+        if (assignment == null) {
+            return null;
+        }
+
+        return assignment.last_graded_source_hash;
+    }
+
+    /**
+     * Get the score-only result of a grading whose feedback was not generated yet.
+     *
+     * @param schoolUid Student's school UID
+     * @param assignmentId Assignment ID
+     * @return Score-only result, or null if no feedback is pending
+     */
+    public GradingResult getPendingFeedback(String schoolUid, String assignmentId) {
+        StudentData student = data.students.get(schoolUid);
+        if (student == null) {
+            return null;
+        }
+
+        AssignmentData assignment = student.assignments.get(assignmentId);
+        if (assignment == null) {
+            return null;
+        }
+
+        return assignment.pending_feedback;
+    }
+
+    /**
+     * Mark a graded assignment as still owing feedback. Cleared by the next {@link #updateGrade}.
+     *
+     * @param schoolUid Student's school UID
+     * @param assignmentId Assignment ID
+     * @param scoreResult Score-only result the feedback must match
+     */
+    public void setPendingFeedback(String schoolUid, String assignmentId, GradingResult scoreResult) {
+        StudentData student = data.students.get(schoolUid);
+        AssignmentData assignment = student == null ? null : student.assignments.get(assignmentId);
+        if (assignment == null) {
+            throw new IllegalStateException("No cached grade for " + schoolUid + " / " + assignmentId);
+        }
+        assignment.pending_feedback = scoreResult;
+    }
+
+    public void updateGrade(String schoolUid, String studentName, String assignmentId,
+                           String assignmentName, int revisionNumber, double grade) {
+        updateGrade(schoolUid, studentName, assignmentId, assignmentName, revisionNumber, null, null, grade);
+    }
+
     /**
      * Update cache after successfully grading a student's assignment.
      *
@@ -138,10 +229,13 @@ public class GradingCache {
      * @param assignmentId Assignment ID
      * @param assignmentName Assignment name
      * @param revisionNumber Revision number that was graded
+     * @param fingerprint Submission fingerprint that was graded (may be null)
+     * @param sourceHash Source hash of the graded submission (may be null)
      * @param grade The grade assigned
      */
     public void updateGrade(String schoolUid, String studentName, String assignmentId,
-                           String assignmentName, int revisionNumber, double grade) {
+                           String assignmentName, int revisionNumber, String fingerprint,
+                           String sourceHash, double grade) {
         // Get or create student entry
         StudentData student = data.students.computeIfAbsent(schoolUid, k -> new StudentData());
         student.name = studentName;
@@ -150,8 +244,11 @@ public class GradingCache {
         AssignmentData assignment = student.assignments.computeIfAbsent(assignmentId, k -> new AssignmentData());
         assignment.assignment_name = assignmentName;
         assignment.last_graded_revision = revisionNumber;
+        assignment.last_graded_fingerprint = fingerprint;
+        assignment.last_graded_source_hash = sourceHash;
         assignment.grade = grade;
         assignment.graded_timestamp = Instant.now().toString();
+        assignment.pending_feedback = null;
 
         System.out.println("  → Cache updated: " + schoolUid + " revision " + revisionNumber);
     }
@@ -187,7 +284,11 @@ public class GradingCache {
     static class AssignmentData {
         public String assignment_name;
         public int last_graded_revision;
+        public String last_graded_fingerprint;
+        // Replaces last_graded_content_hash, which also covered the merge settings; such entries fall back to the revision check
+        public String last_graded_source_hash;
         public double grade;
         public String graded_timestamp;
+        public GradingResult pending_feedback;
     }
 }
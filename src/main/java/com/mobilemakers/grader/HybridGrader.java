@@ -0,0 +1,147 @@
+package com.mobilemakers.grader;
+
+import com.mobilemakers.grader.model.GradingResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Shares grading work between the local model and OpenAI.
+ *
+ * GradeProcessor runs one worker per slot across both backends and every worker pulls from the same
+ * queue. Each request goes to the free backend with the lower cost weight (by default the local model),
+ * so local hardware absorbs the base load and OpenAI only takes requests while the local slots are busy.
+ * OpenAI is not used once its estimated spend, including requests still in flight, would exceed the cap.
+ */
+public class HybridGrader implements Grader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HybridGrader.class);
+    private static final double DEFAULT_COST_PER_CALL_USD = 0.002;
+
+    private final Grader localGrader;
+    private final OpenAIGrader openAIGrader;
+    private final int localCapacity;
+    private final int openAICapacity;
+    private final double localWeight;
+    private final double openAIWeight;
+    private final double openAISpendCapUsd;
+
+    private int localInFlight;
+    private int openAIInFlight;
+    private int localCalls;
+    private int openAICalls;
+    private boolean spendCapLogged;
+
+    public HybridGrader(Grader localGrader, OpenAIGrader openAIGrader) {
+        this(localGrader, openAIGrader,
+                Config.getDouble("HYBRID_LOCAL_COST_WEIGHT", 0.0),
+                Config.getDouble("HYBRID_OPENAI_COST_WEIGHT", 1.0),
+                Config.getDouble("OPENAI_SPEND_CAP_USD", 0.0));
+    }
+
+    /**
+     * @param localGrader Local backend (LM Studio, llama.cpp or Ollama)
+     * @param openAIGrader OpenAI backend
+     * @param localWeight Relative cost of a local request; the free backend with the lower weight is preferred
+     * @param openAIWeight Relative cost of an OpenAI request
+     * @param openAISpendCapUsd Maximum estimated OpenAI spend for the run; 0 or less means no cap
+     */
+    public HybridGrader(Grader localGrader, OpenAIGrader openAIGrader,
+                        double localWeight, double openAIWeight, double openAISpendCapUsd) {
+        this.localGrader = localGrader;
+        this.openAIGrader = openAIGrader;
+        this.localCapacity = localGrader.maxConcurrency();
+        this.openAICapacity = openAIGrader.maxConcurrency();
+        this.localWeight = localWeight;
+        this.openAIWeight = openAIWeight;
+        this.openAISpendCapUsd = openAISpendCapUsd;
+    }
+
+    @Override
+    public String name() {
+        return "Hybrid (" + localGrader.name() + " + " + openAIGrader.name() + ")";
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return localCapacity + openAICapacity;
+    }
+
+    @Override
+    public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) throws IOException {
+        Grader backend = acquireBackend();
+        try {
+            return backend.gradeSubmission(studentKey, prompt, budget);
+        } finally {
+            releaseBackend(backend);
+        }
+    }
+
+    @Override
+    public synchronized String usageSummary() {
+        String cap = openAISpendCapUsd > 0 ? String.format(Locale.US, " (cap $%.2f)", openAISpendCapUsd) : "";
+        return String.format(Locale.US, "Hybrid dispatch: %d local, %d OpenAI | OpenAI spend so far: $%.4f%s",
+                localCalls, openAICalls, openAIGrader.getSpendUsd(), cap);
+    }
+
+    /**
+     * Blocks until a backend has a free slot, preferring the one with the lower cost weight.
+     */
+    private synchronized Grader acquireBackend() throws IOException {
+        while (true) {
+            boolean localFree = localInFlight < localCapacity;
+            boolean openAIFree = openAIInFlight < openAICapacity && openAIWithinBudget();
+
+            if (localFree && (!openAIFree || localWeight <= openAIWeight)) {
+                localInFlight++;
+                localCalls++;
+                return localGrader;
+            }
+            if (openAIFree) {
+                openAIInFlight++;
+                openAICalls++;
+                return openAIGrader;
+            }
+
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a free grading backend", ex);
+            }
+        }
+    }
+
+    private synchronized void releaseBackend(Grader backend) {
+        if (backend == localGrader) {
+            localInFlight--;
+        } else {
+            openAIInFlight--;
+        }
+        notifyAll();
+    }
+
+    /**
+     * True if one more OpenAI request still fits under the spend cap,
+     * counting requests in flight at the average observed cost.
+     */
+    private boolean openAIWithinBudget() {
+        if (openAISpendCapUsd <= 0) {
+            return true;
+        }
+        double perCall = openAIGrader.averageCostPerCall(DEFAULT_COST_PER_CALL_USD);
+        double projected = openAIGrader.getSpendUsd() + (openAIInFlight + 1) * perCall;
+        if (projected > openAISpendCapUsd) {
+            if (!spendCapLogged) {
+                LOGGER.warn(String.format(Locale.US,
+                        "OpenAI spend cap reached ($%.4f of $%.2f), remaining submissions go to the local model",
+                        openAIGrader.getSpendUsd(), openAISpendCapUsd));
+                spendCapLogged = true;
+            }
+            return false;
+        }
+        return true;
+    }
+}
@@ -3,6 +3,7 @@ package com.mobilemakers.grader;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mobilemakers.grader.model.GradingResult;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -13,12 +14,19 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles communication with LM Studio local API.
  */
-public class LMStudioGrader {
+public class LMStudioGrader implements Grader {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LMStudioGrader.class);
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
@@ -28,6 +36,9 @@ public class LMStudioGrader {
     private final ObjectMapper objectMapper;
     private final String endpoint;
     private final String modelName;
+    private final Integer modelTtlSeconds;
+    private final AtomicLong lastRequestMillis = new AtomicLong(0);
+    private ScheduledExecutorService keepAliveScheduler;
 
     public LMStudioGrader() {
         this(Config.get("LM_STUDIO_ENDPOINT"), Config.get("LM_STUDIO_MODEL"));
@@ -36,6 +47,8 @@ public class LMStudioGrader {
     public LMStudioGrader(String endpoint, String modelName) {
         this.endpoint = endpoint == null || endpoint.isBlank() ? DEFAULT_ENDPOINT : endpoint;
         this.modelName = modelName == null || modelName.isBlank() ? "qwen3-4b-thinking-2507" : modelName;
+        int ttl = Config.getInt("LM_STUDIO_MODEL_TTL_SECONDS", 0);
+        this.modelTtlSeconds = ttl > 0 ? ttl : null;
         this.objectMapper = new ObjectMapper();
         this.client = new OkHttpClient.Builder()
                 .callTimeout(Duration.ofMinutes(10))     // Total call timeout: 10 minutes
@@ -45,19 +58,39 @@ public class LMStudioGrader {
                 .build();
     }
 
-    public GradingResult gradeSubmission(String studentKey, String prompt) throws IOException {
+    @Override
+    public String name() {
+        return "LM Studio (" + modelName + ")";
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return Math.max(1, Config.getInt("LM_STUDIO_MAX_CONCURRENCY", 1));
+    }
+
+    @Override
+    public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) throws IOException {
         LOGGER.info("Grading submission for {} using LM Studio ({}) - this may take 1-3 minutes for thinking models...", studentKey, modelName);
 
         // Note: LM Studio doesn't support response_format like OpenAI
         // We'll rely on the prompt to instruct JSON output
-        Map<String, Object> payload = Map.of(
+        Map<String, Object> payload = new LinkedHashMap<>(Map.of(
                 "model", modelName,
                 "messages", new Object[]{
                         Map.of("role", "system", "content", "You are a grading assistant for Swift assignments. You must respond ONLY with valid JSON. Do not include any explanatory text before or after the JSON."),
                         Map.of("role", "user", "content", prompt)
                 },
                 "temperature", 0
-        );
+        ));
+        if (budget.effort() != null) {
+            payload.put("reasoning_effort", budget.effort());
+        }
+        if (budget.maxOutputTokens() != null) {
+            payload.put("max_tokens", budget.maxOutputTokens());
+        }
+        if (modelTtlSeconds != null) {
+            payload.put("ttl", modelTtlSeconds);
+        }
 
         String body = objectMapper.writeValueAsString(payload);
         Request request = new Request.Builder()
@@ -66,6 +99,7 @@ public class LMStudioGrader {
                 .header("Content-Type", "application/json")
                 .build();
 
+        lastRequestMillis.set(System.currentTimeMillis());
         try (Response response = client.newCall(request).execute()) {
             String responseBody = response.body() != null ? response.body().string() : "";
             if (!response.isSuccessful()) {
@@ -81,6 +115,10 @@ public class LMStudioGrader {
             }
 
             JsonNode firstChoice = choices.get(0);
+            if ("length".equals(firstChoice.path("finish_reason").asText())) {
+                throw new IOException("LM Studio response was cut off by the output-token limit (" + budget + "). " +
+                        "Raise MAX_OUTPUT_TOKENS or lower the reasoning effort.");
+            }
             JsonNode message = firstChoice.path("message");
             JsonNode contentNode = message.path("content");
             String content = contentNode.isTextual() ? contentNode.asText() : contentNode.toString();
@@ -92,4 +130,127 @@ public class LMStudioGrader {
             throw new IOException("Cannot connect to LM Studio at " + endpoint + ". Please ensure the server is running and the model is loaded.", e);
         }
     }
+
+    /**
+     * Verifies the configured model via the /v1/models endpoint and sends a one-token completion
+     * so the model is loaded before the first student is graded.
+     *
+     * @return Time spent loading/warming the model (the cold-start time)
+     * @throws IOException if the server cannot be reached or the warm-up completion fails
+     */
+    @Override
+    public Duration warmUp() throws IOException {
+        long start = System.nanoTime();
+        LOGGER.info("Warming up LM Studio model {}...", modelName);
+
+        List<String> availableModels = listModels();
+        if (!availableModels.contains(modelName)) {
+            LOGGER.warn("Model {} is not listed by LM Studio (available: {}). " +
+                    "It will only work if LM Studio can load it on demand.", modelName, availableModels);
+        }
+
+        sendPing();
+        Duration coldStartTime = Duration.ofNanos(System.nanoTime() - start);
+        LOGGER.info("✓ LM Studio model {} ready (cold start: {} ms)", modelName, coldStartTime.toMillis());
+        return coldStartTime;
+    }
+
+    /**
+     * Sends periodic one-token completions so LM Studio does not unload the model between assignments.
+     * A ping is skipped when a grading request was sent within the interval.
+     *
+     * @param interval Time between keep-alive checks
+     */
+    @Override
+    public synchronized void startKeepAlive(Duration interval) {
+        if (keepAliveScheduler != null || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        keepAliveScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lmstudio-keep-alive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        keepAliveScheduler.scheduleWithFixedDelay(() -> {
+            if (System.currentTimeMillis() - lastRequestMillis.get() < intervalMillis) {
+                return;
+            }
+            try {
+                sendPing();
+                LOGGER.debug("Sent keep-alive ping to LM Studio model {}", modelName);
+            } catch (IOException ex) {
+                LOGGER.warn("LM Studio keep-alive ping failed: {}", ex.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("LM Studio keep-alive started (every {} s)", interval.toSeconds());
+    }
+
+    @Override
+    public synchronized void stopKeepAlive() {
+        if (keepAliveScheduler != null) {
+            keepAliveScheduler.shutdownNow();
+            keepAliveScheduler = null;
+        }
+    }
+
+    private List<String> listModels() throws IOException {
+        Request request = new Request.Builder()
+                .url(modelsEndpoint())
+                .get()
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                throw new IOException("LM Studio models endpoint returned status " + response.code() + ": " + responseBody);
+            }
+            List<String> models = new ArrayList<>();
+            for (JsonNode model : objectMapper.readTree(responseBody).path("data")) {
+                models.add(model.path("id").asText());
+            }
+            return models;
+        } catch (java.net.ConnectException e) {
+            throw new IOException("Cannot connect to LM Studio at " + endpoint + ". Please ensure the server is running.", e);
+        }
+    }
+
+    private void sendPing() throws IOException {
+        Map<String, Object> payload = new LinkedHashMap<>(Map.of(
+                "model", modelName,
+                "messages", new Object[]{
+                        Map.of("role", "user", "content", "Reply with OK.")
+                },
+                "max_tokens", 1,
+                "temperature", 0
+        ));
+        if (modelTtlSeconds != null) {
+            payload.put("ttl", modelTtlSeconds);
+        }
+
+        Request request = new Request.Builder()
+                .url(endpoint)
+                .post(RequestBody.create(objectMapper.writeValueAsString(payload), JSON))
+                .header("Content-Type", "application/json")
+                .build();
+
+        lastRequestMillis.set(System.currentTimeMillis());
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String responseBody = response.body() != null ? response.body().string() : "";
+                throw new IOException("LM Studio warm-up returned status " + response.code() + ": " + responseBody);
+            }
+        }
+    }
+
+    private String modelsEndpoint() {
+        if (endpoint.endsWith("/chat/completions")) {
+            return endpoint.substring(0, endpoint.length() - "/chat/completions".length()) + "/models";
+        }
+        HttpUrl url = HttpUrl.parse(endpoint);
+        if (url == null) {
+            return endpoint;
+        }
+        return url.newBuilder().encodedPath("/v1/models").build().toString();
+    }
 }
@@ -0,0 +1,223 @@
+package com.mobilemakers.grader;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobilemakers.grader.model.GradingResult;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Handles communication with a llama.cpp server (llama-server).
+ *
+ * Uses the OpenAI-compatible chat endpoint plus llama.cpp's own request fields:
+ * - cache_prompt: reuse the KV cache for the prompt prefix already held by the slot
+ * - id_slot: pin each request to a specific slot
+ *
+ * Every prompt for an assignment starts with the same rubric text, so a request pinned to a slot
+ * that last served the same rubric only has to evaluate the student's code. The number of slots
+ * should match the server's --parallel (-np) setting; requests on different slots are decoded in parallel.
+ */
+public class LlamaCppGrader implements Grader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LlamaCppGrader.class);
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final String DEFAULT_ENDPOINT = "http://localhost:8080/v1/chat/completions";
+    private static final String RUBRIC_END_MARKER = "STUDENT CODE:";
+    private static final int FALLBACK_PREFIX_LENGTH = 2048;
+
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String endpoint;
+    private final String modelName;
+    private final int slotCount;
+
+    // Rubric prefix hash last loaded into each slot, when the slot was last released (0 = never used),
+    // and which slots are currently busy
+    private final int[] slotPrefixes;
+    private final long[] slotReleased;
+    private final boolean[] slotBusy;
+    private long releaseCount;
+
+    public LlamaCppGrader() {
+        this(Config.get("LLAMA_CPP_ENDPOINT"), Config.get("LLAMA_CPP_MODEL"), Config.getInt("LLAMA_CPP_SLOTS", 1));
+    }
+
+    public LlamaCppGrader(String endpoint, String modelName, int slotCount) {
+        this.endpoint = endpoint == null || endpoint.isBlank() ? DEFAULT_ENDPOINT : endpoint;
+        this.modelName = modelName == null || modelName.isBlank() ? "default" : modelName;
+        this.slotCount = Math.max(1, slotCount);
+        this.slotPrefixes = new int[this.slotCount];
+        this.slotReleased = new long[this.slotCount];
+        this.slotBusy = new boolean[this.slotCount];
+        this.objectMapper = new ObjectMapper();
+        this.client = new OkHttpClient.Builder()
+                .callTimeout(Duration.ofMinutes(10))
+                .connectTimeout(Duration.ofSeconds(30))
+                .readTimeout(Duration.ofMinutes(10))
+                .writeTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return "llama.cpp (" + modelName + ", " + slotCount + " slot(s))";
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return slotCount;
+    }
+
+    @Override
+    public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) throws IOException {
+        int prefixHash = rubricPrefixHash(prompt);
+        int slot = acquireSlot(prefixHash);
+        try {
+            LOGGER.info("Grading submission for {} using llama.cpp slot {}", studentKey, slot);
+            return sendChat(prompt, budget, slot);
+        } finally {
+            releaseSlot(slot, prefixHash);
+        }
+    }
+
+    @Override
+    public Duration warmUp() throws IOException {
+        long start = System.nanoTime();
+        Request health = new Request.Builder()
+                .url(serverUrl("/health"))
+                .get()
+                .build();
+        try (Response response = client.newCall(health).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("llama.cpp server is not ready (HTTP " + response.code() + ")");
+            }
+        } catch (java.net.ConnectException e) {
+            throw new IOException("Cannot connect to llama.cpp server at " + endpoint + ". Please ensure llama-server is running.", e);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        LOGGER.info("✓ llama.cpp server ready ({} ms)", elapsed.toMillis());
+        return elapsed;
+    }
+
+    private GradingResult sendChat(String prompt, ReasoningBudget budget, int slot) throws IOException {
+        Map<String, Object> payload = new LinkedHashMap<>(Map.of(
+                "model", modelName,
+                "messages", new Object[]{
+                        Map.of("role", "system", "content", "You are a grading assistant for Swift assignments. You must respond ONLY with valid JSON. Do not include any explanatory text before or after the JSON."),
+                        Map.of("role", "user", "content", prompt)
+                },
+                "temperature", 0,
+                "response_format", Map.of("type", "json_object"),
+                "cache_prompt", true,
+                "id_slot", slot
+        ));
+        if (budget.maxOutputTokens() != null) {
+            payload.put("max_tokens", budget.maxOutputTokens());
+        }
+        if (budget.effort() != null) {
+            payload.put("reasoning_effort", budget.effort());
+        }
+
+        Request request = new Request.Builder()
+                .url(endpoint)
+                .post(RequestBody.create(objectMapper.writeValueAsString(payload), JSON))
+                .header("Content-Type", "application/json")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                throw new IOException("llama.cpp server returned status " + response.code() + ": " + responseBody);
+            }
+            JsonNode root = objectMapper.readTree(responseBody);
+            JsonNode choices = root.path("choices");
+            if (!choices.isArray() || choices.isEmpty()) {
+                throw new IOException("llama.cpp response missing choices: " + responseBody);
+            }
+
+            JsonNode firstChoice = choices.get(0);
+            if ("length".equals(firstChoice.path("finish_reason").asText())) {
+                throw new IOException("llama.cpp response was cut off by the output-token limit (" + budget + "). " +
+                        "Raise MAX_OUTPUT_TOKENS or lower the reasoning effort.");
+            }
+            JsonNode contentNode = firstChoice.path("message").path("content");
+            String content = contentNode.isTextual() ? contentNode.asText() : contentNode.toString();
+
+            GradingResult result = objectMapper.readValue(content, GradingResult.class);
+            result.setRawResponse(responseBody);
+            return result;
+        } catch (java.net.ConnectException e) {
+            throw new IOException("Cannot connect to llama.cpp server at " + endpoint + ". Please ensure llama-server is running.", e);
+        }
+    }
+
+    /**
+     * Picks a free slot, preferring one whose KV cache already holds this rubric. Otherwise an unused slot is
+     * taken, then the one released longest ago, so another rubric's cache is only evicted when it has to be.
+     * Blocks until a slot is free when all slots are busy.
+     */
+    private synchronized int acquireSlot(int prefixHash) throws IOException {
+        while (true) {
+            int freeSlot = -1;
+            for (int i = 0; i < slotCount; i++) {
+                if (slotBusy[i]) {
+                    continue;
+                }
+                if (slotReleased[i] > 0 && slotPrefixes[i] == prefixHash) {
+                    slotBusy[i] = true;
+                    return i;
+                }
+                if (freeSlot == -1 || slotReleased[i] < slotReleased[freeSlot]) {
+                    freeSlot = i;
+                }
+            }
+            if (freeSlot != -1) {
+                slotBusy[freeSlot] = true;
+                return freeSlot;
+            }
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a llama.cpp slot", ex);
+            }
+        }
+    }
+
+    private synchronized void releaseSlot(int slot, int prefixHash) {
+        slotBusy[slot] = false;
+        slotPrefixes[slot] = prefixHash;
+        slotReleased[slot] = ++releaseCount;
+        notifyAll();
+    }
+
+    /**
+     * Hash of the rubric text that precedes the student's code. Identical for every student of an assignment.
+     */
+    private int rubricPrefixHash(String prompt) {
+        int end = prompt.indexOf(RUBRIC_END_MARKER);
+        if (end < 0) {
+            end = Math.min(prompt.length(), FALLBACK_PREFIX_LENGTH);
+        }
+        return prompt.substring(0, end).hashCode();
+    }
+
+    private String serverUrl(String path) {
+        HttpUrl url = HttpUrl.parse(endpoint);
+        if (url == null) {
+            throw new IllegalStateException("Invalid LLAMA_CPP_ENDPOINT: " + endpoint);
+        }
+        return url.newBuilder().encodedPath(path).build().toString();
+    }
+}
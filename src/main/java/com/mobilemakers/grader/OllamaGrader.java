@@ -0,0 +1,163 @@
+package com.mobilemakers.grader;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobilemakers.grader.model.GradingResult;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Handles communication with an Ollama server through its native /api/chat endpoint.
+ *
+ * Unlike the OpenAI-compatible endpoint, the native API accepts keep_alive (how long the model stays
+ * loaded after a request) and per-request options such as num_ctx. Ollama reuses the KV cache for a
+ * matching prompt prefix automatically, so the shared rubric is only evaluated once per loaded slot.
+ * OLLAMA_NUM_PARALLEL should match the server's own OLLAMA_NUM_PARALLEL so GradeProcessor keeps
+ * exactly that many requests in flight.
+ *
+ * Ollama only switches thinking on or off, so reasoning effort has two levels here: "minimal" turns it
+ * off and "low", "medium" and "high" all send the same request with thinking on. Effort auto-tuning can
+ * therefore only tell "minimal" apart from the reference; the other candidate levels always agree with it.
+ */
+public class OllamaGrader implements Grader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OllamaGrader.class);
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    private static final String DEFAULT_BASE_URL = "http://localhost:11434";
+
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final String modelName;
+    private final String keepAlive;
+    private final int numParallel;
+    private final int contextLength;
+
+    public OllamaGrader() {
+        this(Config.get("OLLAMA_BASE_URL"),
+                Config.get("OLLAMA_MODEL"),
+                Config.get("OLLAMA_KEEP_ALIVE", "30m"),
+                Config.getInt("OLLAMA_NUM_PARALLEL", 1),
+                Config.getInt("OLLAMA_NUM_CTX", 0));
+    }
+
+    public OllamaGrader(String baseUrl, String modelName, String keepAlive, int numParallel, int contextLength) {
+        String url = baseUrl == null || baseUrl.isBlank() ? DEFAULT_BASE_URL : baseUrl;
+        this.baseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.modelName = modelName == null || modelName.isBlank() ? "qwen3:4b" : modelName;
+        this.keepAlive = keepAlive;
+        this.numParallel = Math.max(1, numParallel);
+        this.contextLength = contextLength;
+        this.objectMapper = new ObjectMapper();
+        this.client = new OkHttpClient.Builder()
+                .callTimeout(Duration.ofMinutes(10))
+                .connectTimeout(Duration.ofSeconds(30))
+                .readTimeout(Duration.ofMinutes(10))
+                .writeTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return "Ollama (" + modelName + ", " + numParallel + " parallel)";
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return numParallel;
+    }
+
+    @Override
+    public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) throws IOException {
+        LOGGER.info("Grading submission for {} using Ollama ({})", studentKey, modelName);
+
+        Map<String, Object> options = new LinkedHashMap<>();
+        options.put("temperature", 0);
+        if (contextLength > 0) {
+            options.put("num_ctx", contextLength);
+        }
+        if (budget.maxOutputTokens() != null) {
+            options.put("num_predict", budget.maxOutputTokens());
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>(Map.of(
+                "model", modelName,
+                "messages", new Object[]{
+                        Map.of("role", "system", "content", "You are a grading assistant for Swift assignments. You must respond ONLY with valid JSON. Do not include any explanatory text before or after the JSON."),
+                        Map.of("role", "user", "content", prompt)
+                },
+                "stream", false,
+                "format", "json",
+                "options", options
+        ));
+        if (keepAlive != null && !keepAlive.isBlank()) {
+            payload.put("keep_alive", keepAlive);
+        }
+        if (budget.effort() != null) {
+            // Thinking models only support on/off; "minimal" turns hidden reasoning off, every other level turns it on
+            payload.put("think", !"minimal".equals(budget.effort()));
+        }
+
+        String responseBody = post("/api/chat", payload);
+        JsonNode root = objectMapper.readTree(responseBody);
+        if ("length".equals(root.path("done_reason").asText())) {
+            throw new IOException("Ollama response was cut off by the output-token limit (" + budget + "). " +
+                    "Raise MAX_OUTPUT_TOKENS or lower the reasoning effort.");
+        }
+        JsonNode contentNode = root.path("message").path("content");
+        if (contentNode.isMissingNode()) {
+            throw new IOException("Ollama response missing message content: " + responseBody);
+        }
+        String content = contentNode.isTextual() ? contentNode.asText() : contentNode.toString();
+
+        GradingResult result = objectMapper.readValue(content, GradingResult.class);
+        result.setRawResponse(responseBody);
+        return result;
+    }
+
+    /**
+     * Loads the model with an empty generate request, which Ollama treats as a preload.
+     */
+    @Override
+    public Duration warmUp() throws IOException {
+        long start = System.nanoTime();
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("model", modelName);
+        if (keepAlive != null && !keepAlive.isBlank()) {
+            payload.put("keep_alive", keepAlive);
+        }
+        post("/api/generate", payload);
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        LOGGER.info("✓ Ollama model {} loaded (cold start: {} ms)", modelName, elapsed.toMillis());
+        return elapsed;
+    }
+
+    private String post(String path, Map<String, Object> payload) throws IOException {
+        Request request = new Request.Builder()
+                .url(baseUrl + path)
+                .post(RequestBody.create(objectMapper.writeValueAsString(payload), JSON))
+                .header("Content-Type", "application/json")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                throw new IOException("Ollama API returned status " + response.code() + ": " + responseBody);
+            }
+            return responseBody;
+        } catch (java.net.ConnectException e) {
+            throw new IOException("Cannot connect to Ollama at " + baseUrl + ". Please ensure `ollama serve` is running.", e);
+        }
+    }
+}
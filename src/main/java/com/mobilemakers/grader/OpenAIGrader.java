@@ -13,12 +13,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
 
 /**
  * Handles communication with the OpenAI API.
  */
-public class OpenAIGrader {
+public class OpenAIGrader implements Grader {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OpenAIGrader.class);
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
@@ -28,6 +31,10 @@ public class OpenAIGrader {
     private final ObjectMapper objectMapper;
     private final String apiKey;
     private final String model;
+    private final double inputCostPerMillion;
+    private final double outputCostPerMillion;
+    private final DoubleAdder spendUsd = new DoubleAdder();
+    private final AtomicInteger billedCalls = new AtomicInteger();
 
     public OpenAIGrader() {
         this(Config.get("OPENAI_API_KEY"), DEFAULT_MODEL);
@@ -36,6 +43,8 @@ public class OpenAIGrader {
     public OpenAIGrader(String apiKey, String model) {
         this.apiKey = apiKey;
         this.model = model == null || model.isBlank() ? DEFAULT_MODEL : model;
+        this.inputCostPerMillion = Config.getDouble("OPENAI_INPUT_COST_PER_MILLION", 0.25);
+        this.outputCostPerMillion = Config.getDouble("OPENAI_OUTPUT_COST_PER_MILLION", 2.00);
         this.objectMapper = new ObjectMapper();
         this.client = new OkHttpClient.Builder()
                 .callTimeout(Duration.ofMinutes(10))
@@ -45,18 +54,35 @@ public class OpenAIGrader {
                 .build();
     }
 
-    public GradingResult gradeSubmission(String studentKey, String prompt) throws IOException {
+    @Override
+    public String name() {
+        return "OpenAI (" + model + ")";
+    }
+
+    @Override
+    public int maxConcurrency() {
+        return Math.max(1, Config.getInt("OPENAI_MAX_CONCURRENCY", 1));
+    }
+
+    @Override
+    public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) throws IOException {
         ensureApiKeyPresent();
         LOGGER.info("Grading submission for {}", studentKey);
 
-        Map<String, Object> payload = Map.of(
+        Map<String, Object> payload = new LinkedHashMap<>(Map.of(
                 "model", model,
                 "messages", new Object[]{
                         Map.of("role", "system", "content", "You are a grading assistant for Swift assignments."),
                         Map.of("role", "user", "content", prompt)
                 },
                 "response_format", Map.of("type", "json_object")
-        );
+        ));
+        if (budget.effort() != null) {
+            payload.put("reasoning_effort", budget.effort());
+        }
+        if (budget.maxOutputTokens() != null) {
+            payload.put("max_completion_tokens", budget.maxOutputTokens());
+        }
 
         String body = objectMapper.writeValueAsString(payload);
         Request request = new Request.Builder()
@@ -72,12 +98,17 @@ public class OpenAIGrader {
                 throw new IOException("OpenAI API returned status " + response.code() + ": " + responseBody);
             }
             JsonNode root = objectMapper.readTree(responseBody);
+            recordUsage(root.path("usage"));
             JsonNode choices = root.path("choices");
             if (!choices.isArray() || choices.isEmpty()) {
                 throw new IOException("OpenAI response missing choices: " + responseBody);
             }
 
             JsonNode firstChoice = choices.get(0);
+            if ("length".equals(firstChoice.path("finish_reason").asText())) {
+                throw new IOException("OpenAI response was cut off by the output-token limit (" + budget + "). " +
+                        "Raise MAX_OUTPUT_TOKENS or lower the reasoning effort.");
+            }
             JsonNode message = firstChoice.path("message");
             JsonNode contentNode = message.path("content");
             String content = contentNode.isTextual() ? contentNode.asText() : contentNode.toString();
@@ -88,6 +119,31 @@ public class OpenAIGrader {
         }
     }
 
+    /**
+     * Estimated spend so far (all assignments in this run), from reported token usage.
+     */
+    public double getSpendUsd() {
+        return spendUsd.sum();
+    }
+
+    /**
+     * Average estimated cost of one grading call, or the fallback if nothing has been billed yet.
+     */
+    public double averageCostPerCall(double fallbackUsd) {
+        int calls = billedCalls.get();
+        return calls == 0 ? fallbackUsd : spendUsd.sum() / calls;
+    }
+
+    private void recordUsage(JsonNode usage) {
+        if (usage.isMissingNode()) {
+            return;
+        }
+        double cost = usage.path("prompt_tokens").asLong(0) * inputCostPerMillion / 1_000_000.0
+                + usage.path("completion_tokens").asLong(0) * outputCostPerMillion / 1_000_000.0;
+        spendUsd.add(cost);
+        billedCalls.incrementAndGet();
+    }
+
     private void ensureApiKeyPresent() {
         if (apiKey == null || apiKey.isBlank()) {
             throw new IllegalStateException("OPENAI_API_KEY is not configured.");
@@ -0,0 +1,303 @@
+package com.mobilemakers.grader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which Swift files in a submission belong to the app being graded.
+ *
+ * When a submission contains an Xcode project, its project.pbxproj lists the files compiled into each
+ * target; only the application targets' sources are kept. A Swift package without an Xcode project keeps
+ * the directories of its non-test targets. Projects using folder-synced groups (Xcode 16) do not list the
+ * synced files, even when a few others are added explicitly. Those projects rely on the directory skip-list
+ * alone. __MACOSX, DerivedData, build output, dependency checkouts, user data and test targets are never read.
+ *
+ * Paths are '/'-separated and relative to the student directory or ZIP root.
+ */
+final class ProjectSources {
+
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of(
+            "__macosx", "deriveddata", ".build", "build", "pods", "carthage", "xcuserdata", ".git", ".swiftpm");
+
+    private static final String SYNCHRONIZED_ROOT_GROUP = "PBXFileSystemSynchronizedRootGroup";
+
+    private static final Pattern OBJECT_START = Pattern.compile("([0-9A-Fa-f]{24})(?: /\\*[^*]*\\*/)? = \\{");
+    private static final Pattern ISA = Pattern.compile("isa = (\\w+);");
+    private static final Pattern PRODUCT_TYPE = Pattern.compile("productType = \"?([\\w.\\-]+)\"?;");
+    private static final Pattern BUILD_PHASES = Pattern.compile("buildPhases = \\((.*?)\\);", Pattern.DOTALL);
+    private static final Pattern OBJECT_ID = Pattern.compile("[0-9A-Fa-f]{24}");
+    private static final Pattern SOURCE_FILE = Pattern.compile("/\\* (.+?) in Sources \\*/");
+
+    private static final Pattern PACKAGE_TARGET = Pattern.compile(
+            "\\.(target|executableTarget|testTarget|binaryTarget|systemLibrary|macro|plugin)\\s*\\(\\s*name:\\s*\"([^\"]+)\"");
+    private static final Pattern PACKAGE_PATH = Pattern.compile("path:\\s*\"([^\"]+)\"");
+
+    /**
+     * Files allowed below one project root.
+     *
+     * @param root Project root ending in '/', or "" for the top level
+     * @param fileNames Source file names from project.pbxproj; empty when directories are used instead
+     * @param directories Package target directories relative to the root
+     */
+    record Rule(String root, Set<String> fileNames, List<String> directories) {
+
+        boolean covers(String path) {
+            return path.startsWith(root);
+        }
+
+        boolean allows(String path) {
+            String relative = path.substring(root.length());
+            if (!fileNames.isEmpty()) {
+                return fileNames.contains(relative.substring(relative.lastIndexOf('/') + 1));
+            }
+            for (String directory : directories) {
+                if (relative.startsWith(directory + "/")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A project.pbxproj or Package.swift found in a submission.
+     *
+     * @param path '/'-separated path of the file
+     * @param content File text
+     * @param lastModified Modification time in milliseconds, used to pick between duplicate project copies
+     * @param scope Projects with the same name are duplicates only within the same scope (e.g. one revision folder)
+     */
+    record ProjectFile(String path, String content, long lastModified, String scope) {
+    }
+
+    static final ProjectSources NONE = new ProjectSources(List.of(), List.of());
+
+    private final List<Rule> rules;
+    private final List<String> excludedRoots;
+
+    private ProjectSources(List<Rule> rules, List<String> excludedRoots) {
+        this.rules = List.copyOf(rules);
+        this.excludedRoots = List.copyOf(excludedRoots);
+    }
+
+    /**
+     * Builds the rules for every project in a submission. When the same .xcodeproj appears more than once in
+     * a scope ("MyApp" and "MyApp copy"), only the most recently modified copy is kept.
+     */
+    static ProjectSources from(List<ProjectFile> projectFiles) {
+        Map<String, ProjectFile> newestXcodeProjects = new LinkedHashMap<>();
+        List<String> xcodeRoots = new ArrayList<>();
+        for (ProjectFile file : projectFiles) {
+            String root = xcodeProjectRoot(file.path());
+            if (root == null) {
+                continue;
+            }
+            xcodeRoots.add(root);
+            String projectName = file.path().substring(root.length(), file.path().indexOf('/', root.length()));
+            newestXcodeProjects.merge(file.scope() + "|" + projectName, file,
+                    (a, b) -> b.lastModified() > a.lastModified() ? b : a);
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        List<String> excludedRoots = new ArrayList<>();
+        for (ProjectFile file : projectFiles) {
+            String root = xcodeProjectRoot(file.path());
+            if (root != null) {
+                String projectName = file.path().substring(root.length(), file.path().indexOf('/', root.length()));
+                ProjectFile kept = newestXcodeProjects.get(file.scope() + "|" + projectName);
+                if (kept != file) {
+                    String keptRoot = xcodeProjectRoot(kept.path());
+                    if (!root.isEmpty() && !keptRoot.startsWith(root)) {
+                        excludedRoots.add(root);
+                    }
+                    continue;
+                }
+                Set<String> names = appSourceNames(file.content());
+                if (!names.isEmpty()) {
+                    rules.add(new Rule(root, names, List.of()));
+                }
+            } else if (file.path().equals("Package.swift") || file.path().endsWith("/Package.swift")) {
+                String packageRoot = file.path().substring(0, file.path().length() - "Package.swift".length());
+                List<String> directories = packageSourceDirectories(file.content());
+                if (!xcodeRoots.contains(packageRoot) && !directories.isEmpty()) {
+                    rules.add(new Rule(packageRoot, Set.of(), directories));
+                }
+            }
+        }
+        return new ProjectSources(rules, excludedRoots);
+    }
+
+    /**
+     * True if a Swift file should be merged: outside skipped directories, not inside a duplicate project
+     * copy, and listed by the nearest enclosing project.
+     */
+    boolean includes(String path) {
+        if (isSkippedPath(path)) {
+            return false;
+        }
+        for (String excluded : excludedRoots) {
+            if (path.startsWith(excluded)) {
+                return false;
+            }
+        }
+        Rule nearest = null;
+        for (Rule rule : rules) {
+            if (rule.covers(path) && (nearest == null || rule.root().length() > nearest.root().length())) {
+                nearest = rule;
+            }
+        }
+        return nearest == null || nearest.allows(path);
+    }
+
+    /**
+     * Directory names that never hold sources the rubric grades.
+     */
+    static boolean isSkippedDirectory(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return SKIPPED_DIRECTORIES.contains(lower)
+                || isTestTargetDirectory(name)
+                || (name.startsWith(".") && name.length() > 1);
+    }
+
+    /**
+     * Test target folders as Xcode and SwiftPM name them: "Tests", "UITests", or a target name followed by
+     * "Tests" ("CounterTests", "CounterUITests"). Words that merely end in "tests", like "Contests", are kept.
+     */
+    private static boolean isTestTargetDirectory(String name) {
+        if (name.equalsIgnoreCase("tests") || name.equalsIgnoreCase("uitests")) {
+            return true;
+        }
+        return name.length() > "Tests".length() && name.endsWith("Tests");
+    }
+
+    /**
+     * True if any directory in the path is skipped, or the file is macOS resource-fork metadata.
+     */
+    static boolean isSkippedPath(String path) {
+        String[] parts = path.split("/");
+        for (int i = 0; i < parts.length - 1; i++) {
+            if (isSkippedDirectory(parts[i])) {
+                return true;
+            }
+        }
+        return parts.length > 0 && parts[parts.length - 1].startsWith("._");
+    }
+
+    /**
+     * Root of the project a project.pbxproj belongs to: the folder holding the .xcodeproj.
+     *
+     * @return Root ending in '/', "" for the top level, or null if the path is not a project file
+     */
+    static String xcodeProjectRoot(String pbxprojPath) {
+        if (!pbxprojPath.endsWith(".xcodeproj/project.pbxproj")) {
+            return null;
+        }
+        String projectDir = pbxprojPath.substring(0, pbxprojPath.length() - "/project.pbxproj".length());
+        int slash = projectDir.lastIndexOf('/');
+        return slash < 0 ? "" : projectDir.substring(0, slash + 1);
+    }
+
+    /**
+     * Names of the Swift files compiled into the project's application targets.
+     *
+     * @return File names, or an empty set when the project does not list all its sources (folder-synced groups)
+     */
+    static Set<String> appSourceNames(String pbxproj) {
+        if (pbxproj.contains(SYNCHRONIZED_ROOT_GROUP)) {
+            // Synced folders compile every file inside them without a build file entry, so a name list would drop them
+            return Set.of();
+        }
+        Set<String> appPhases = new LinkedHashSet<>();
+        List<String[]> sourcePhases = new ArrayList<>();
+
+        Matcher start = OBJECT_START.matcher(pbxproj);
+        int from = 0;
+        while (start.find(from)) {
+            int end = matchingBrace(pbxproj, start.end() - 1);
+            if (end < 0) {
+                break;
+            }
+            String body = pbxproj.substring(start.end(), end);
+            Matcher isa = ISA.matcher(body);
+            String type = isa.find() ? isa.group(1) : "";
+
+            if (type.equals("PBXNativeTarget")) {
+                Matcher productType = PRODUCT_TYPE.matcher(body);
+                Matcher phases = BUILD_PHASES.matcher(body);
+                if (productType.find() && productType.group(1).contains("product-type.application") && phases.find()) {
+                    Matcher ids = OBJECT_ID.matcher(phases.group(1));
+                    while (ids.find()) {
+                        appPhases.add(ids.group());
+                    }
+                }
+            } else if (type.equals("PBXSourcesBuildPhase")) {
+                sourcePhases.add(new String[]{start.group(1), body});
+            }
+            from = end;
+        }
+
+        Set<String> names = new LinkedHashSet<>();
+        for (String[] phase : sourcePhases) {
+            if (appPhases.contains(phase[0])) {
+                Matcher file = SOURCE_FILE.matcher(phase[1]);
+                while (file.find()) {
+                    if (file.group(1).endsWith(".swift")) {
+                        names.add(file.group(1));
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Source directories of a Swift package's non-test targets, relative to the package root.
+     */
+    static List<String> packageSourceDirectories(String packageSwift) {
+        List<String> directories = new ArrayList<>();
+        Matcher target = PACKAGE_TARGET.matcher(packageSwift);
+        List<int[]> spans = new ArrayList<>();
+        List<String[]> found = new ArrayList<>();
+        while (target.find()) {
+            spans.add(new int[]{target.start(), target.end()});
+            found.add(new String[]{target.group(1), target.group(2)});
+        }
+        for (int i = 0; i < found.size(); i++) {
+            String kind = found.get(i)[0];
+            if (!kind.equals("target") && !kind.equals("executableTarget")) {
+                continue;
+            }
+            int windowEnd = i + 1 < spans.size() ? spans.get(i + 1)[0] : packageSwift.length();
+            Matcher path = PACKAGE_PATH.matcher(packageSwift.substring(spans.get(i)[1], windowEnd));
+            String directory = path.find() ? path.group(1) : "Sources/" + found.get(i)[1];
+            directories.add(directory.replaceAll("^\\./", "").replaceAll("/+$", ""));
+        }
+        return directories;
+    }
+
+    private static int matchingBrace(String text, int open) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = open; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' && text.charAt(i - 1) != '\\') {
+                quoted = !quoted;
+            } else if (!quoted && c == '{') {
+                depth++;
+            } else if (!quoted && c == '}') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.mobilemakers.grader;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reasoning effort and output-token limit sent with each grading request.
+ * A null field means "not sent", so the model's own default applies.
+ *
+ * @param effort Reasoning effort (minimal, low, medium or high), or null
+ * @param maxOutputTokens Maximum completion tokens including hidden reasoning, or null
+ */
+public record ReasoningBudget(String effort, Integer maxOutputTokens) {
+
+    public static final List<String> EFFORT_LEVELS = List.of("minimal", "low", "medium", "high");
+    public static final ReasoningBudget UNLIMITED = new ReasoningBudget(null, null);
+
+    public ReasoningBudget {
+        if (effort != null) {
+            effort = effort.trim().toLowerCase(Locale.ROOT);
+            if (effort.isEmpty()) {
+                effort = null;
+            } else if (!EFFORT_LEVELS.contains(effort)) {
+                throw new IllegalArgumentException("Unknown reasoning effort: " + effort + ". Expected one of " + EFFORT_LEVELS);
+            }
+        }
+        if (maxOutputTokens != null && maxOutputTokens <= 0) {
+            throw new IllegalArgumentException("Max output tokens must be positive: " + maxOutputTokens);
+        }
+    }
+
+    /**
+     * Parses a budget from raw configuration values.
+     *
+     * @param effort Reasoning effort value (may be null or blank)
+     * @param maxOutputTokens Token limit value (may be null or blank)
+     * @return Parsed budget
+     * @throws IllegalArgumentException if a value is invalid
+     */
+    public static ReasoningBudget parse(String effort, String maxOutputTokens) {
+        Integer tokens = null;
+        if (maxOutputTokens != null && !maxOutputTokens.isBlank()) {
+            try {
+                tokens = Integer.parseInt(maxOutputTokens.trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Max output tokens must be a number: " + maxOutputTokens, ex);
+            }
+        }
+        return new ReasoningBudget(effort, tokens);
+    }
+
+    /**
+     * Loads the global default budget from REASONING_EFFORT and MAX_OUTPUT_TOKENS.
+     */
+    public static ReasoningBudget fromEnvironment() {
+        return parse(Config.get("REASONING_EFFORT"), Config.get("MAX_OUTPUT_TOKENS"));
+    }
+
+    public boolean hasEffort() {
+        return effort != null;
+    }
+
+    /**
+     * Returns a copy with another effort, keeping the token limit.
+     */
+    public ReasoningBudget withEffort(String newEffort) {
+        return new ReasoningBudget(newEffort, maxOutputTokens);
+    }
+
+    /**
+     * Fills fields that are not set here from the fallback budget.
+     */
+    public ReasoningBudget orElse(ReasoningBudget fallback) {
+        return new ReasoningBudget(
+                effort != null ? effort : fallback.effort(),
+                maxOutputTokens != null ? maxOutputTokens : fallback.maxOutputTokens());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("effort=%s, maxOutputTokens=%s",
+                effort != null ? effort : "default",
+                maxOutputTokens != null ? maxOutputTokens : "default");
+    }
+}
@@ -0,0 +1,255 @@
+package com.mobilemakers.grader;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mobilemakers.grader.model.GradingResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the cheapest reasoning effort that grades like a high-effort run.
+ *
+ * A small sample of submissions is graded once at high effort (the reference) and then at
+ * increasingly higher candidate efforts until one agrees with the reference on every sample.
+ * Only the effort is tuned: a token limit derived from a few samples would cut off a longer submission
+ * later, so the configured limit (if any) applies. Results are persisted per assignment and model so
+ * tuning only runs once per rubric.
+ *
+ * Cache structure:
+ * {
+ *   "assignments": {
+ *     "8017693698:OpenAI (gpt-5-mini)": {
+ *       "promptFingerprint": "5f3a2c1b",
+ *       "effort": "low",
+ *       "agreement": 1.0,
+ *       "sampleSize": 3,
+ *       "tunedTimestamp": "2025-10-11T15:30:00Z"
+ *     }
+ *   },
+ *   "cache_version": "1.0",
+ *   "last_updated": "2025-10-11T15:30:00Z"
+ * }
+ */
+public class ReasoningBudgetTuner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReasoningBudgetTuner.class);
+    private static final String CACHE_FILE = "reasoning-budget-cache.json";
+    private static final String CACHE_VERSION = "1.0";
+    private static final String REFERENCE_EFFORT = "high";
+
+    private final ObjectMapper mapper;
+    private final String cacheFilePath;
+    private final List<String> candidateEfforts;
+    private final int sampleSize;
+    private final double scoreTolerance;
+    private CacheData data;
+
+    /**
+     * Grades one sample at a given budget. Implemented by GradeProcessor so the active model is used.
+     */
+    @FunctionalInterface
+    public interface SampleGrader {
+        GradingResult grade(String studentKey, String prompt, ReasoningBudget budget) throws IOException;
+    }
+
+    /**
+     * A submission used for calibration.
+     */
+    public record Sample(String studentKey, String prompt) {
+    }
+
+    /**
+     * Chosen budget plus the reference (high-effort) results, which callers may reuse as real grades.
+     */
+    public record TuningOutcome(ReasoningBudget budget, Map<String, GradingResult> referenceResults) {
+    }
+
+    public ReasoningBudgetTuner(String resultsDirectory, List<String> candidateEfforts,
+                                int sampleSize, double scoreTolerance) {
+        this.mapper = new ObjectMapper();
+        this.mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.cacheFilePath = resultsDirectory + File.separator + CACHE_FILE;
+        this.candidateEfforts = candidateEfforts;
+        this.sampleSize = Math.max(1, sampleSize);
+        this.scoreTolerance = scoreTolerance;
+
+        load();
+    }
+
+    /**
+     * Creates a tuner from REASONING_TUNE_LEVELS, REASONING_TUNE_SAMPLE_SIZE and REASONING_TUNE_TOLERANCE.
+     */
+    public static ReasoningBudgetTuner fromEnvironment(String resultsDirectory) {
+        List<String> levels = Arrays.stream(Config.get("REASONING_TUNE_LEVELS", "low,medium").split(","))
+                .map(String::trim)
+                .filter(level -> !level.isEmpty())
+                .map(level -> new ReasoningBudget(level, null).effort())
+                .filter(level -> !REFERENCE_EFFORT.equals(level))
+                .sorted((a, b) -> Integer.compare(
+                        ReasoningBudget.EFFORT_LEVELS.indexOf(a), ReasoningBudget.EFFORT_LEVELS.indexOf(b)))
+                .collect(Collectors.toList());
+        return new ReasoningBudgetTuner(
+                resultsDirectory,
+                levels,
+                Config.getInt("REASONING_TUNE_SAMPLE_SIZE", 3),
+                Config.getDouble("REASONING_TUNE_TOLERANCE", 0.5));
+    }
+
+    private void load() {
+        File cacheFile = new File(cacheFilePath);
+
+        if (cacheFile.exists()) {
+            try {
+                data = mapper.readValue(cacheFile, CacheData.class);
+                LOGGER.debug("Loaded reasoning budget cache: {} entries", data.assignments.size());
+            } catch (IOException e) {
+                LOGGER.warn("⚠ Failed to load reasoning budget cache, starting fresh: {}", e.getMessage());
+                data = new CacheData();
+            }
+        } else {
+            data = new CacheData();
+        }
+    }
+
+    private void save() {
+        data.last_updated = Instant.now().toString();
+
+        try {
+            File cacheFile = new File(cacheFilePath);
+            cacheFile.getParentFile().mkdirs(); // Ensure directory exists
+            mapper.writeValue(cacheFile, data);
+        } catch (IOException e) {
+            LOGGER.error("✗ Failed to save reasoning budget cache: {}", e.getMessage());
+        }
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Returns the configured budget with the previously tuned effort, or null if this rubric has not been
+     * tuned yet.
+     *
+     * @param tuningKey Assignment ID combined with the model identifier
+     * @param promptFingerprint Fingerprint of the rubric text; a changed rubric forces re-tuning
+     * @param baseBudget Configured budget, whose token limit is kept
+     */
+    public ReasoningBudget getTunedBudget(String tuningKey, String promptFingerprint, ReasoningBudget baseBudget) {
+        TunedEntry entry = data.assignments.get(tuningKey);
+        if (entry == null || !promptFingerprint.equals(entry.promptFingerprint)) {
+            return null;
+        }
+        return baseBudget.withEffort(entry.effort);
+    }
+
+    /**
+     * Calibrates the reasoning effort on the given samples and persists the result.
+     *
+     * @param tuningKey Assignment ID combined with the model identifier
+     * @param promptFingerprint Fingerprint of the rubric text
+     * @param baseBudget Configured budget; its token limit is kept as-is
+     * @param samples Submissions to calibrate on
+     * @param grader Grades a sample with the active model
+     * @return Chosen budget and the reference results for the samples that were graded
+     */
+    public TuningOutcome tune(String tuningKey, String promptFingerprint, ReasoningBudget baseBudget,
+                              List<Sample> samples, SampleGrader grader) {
+        LOGGER.info("Tuning reasoning effort on {} sample submission(s) (reference effort: {})",
+                samples.size(), REFERENCE_EFFORT);
+
+        Map<String, GradingResult> referenceResults = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            try {
+                GradingResult result = grader.grade(sample.studentKey(), sample.prompt(),
+                        baseBudget.withEffort(REFERENCE_EFFORT));
+                referenceResults.put(sample.studentKey(), result);
+            } catch (IOException ex) {
+                LOGGER.warn("Reference grading failed for {} during tuning: {}", sample.studentKey(), ex.getMessage());
+            }
+        }
+
+        if (referenceResults.isEmpty()) {
+            LOGGER.warn("No reference results available, keeping configured reasoning budget ({})", baseBudget);
+            return new TuningOutcome(baseBudget, referenceResults);
+        }
+
+        String chosenEffort = REFERENCE_EFFORT;
+        double chosenAgreement = 1.0;
+        for (String effort : candidateEfforts) {
+            int agreeing = 0;
+            for (Sample sample : samples) {
+                GradingResult reference = referenceResults.get(sample.studentKey());
+                if (reference == null) {
+                    continue;
+                }
+                try {
+                    GradingResult candidate = grader.grade(sample.studentKey(), sample.prompt(), baseBudget.withEffort(effort));
+                    if (agrees(reference, candidate)) {
+                        agreeing++;
+                    }
+                } catch (IOException ex) {
+                    LOGGER.debug("Candidate effort {} failed for {}: {}", effort, sample.studentKey(), ex.getMessage());
+                }
+            }
+
+            double agreement = (double) agreeing / referenceResults.size();
+            LOGGER.info("  effort={} agreed with {} on {}/{} sample(s)",
+                    effort, REFERENCE_EFFORT, agreeing, referenceResults.size());
+            if (agreeing == referenceResults.size()) {
+                chosenEffort = effort;
+                chosenAgreement = agreement;
+                break;
+            }
+        }
+
+        ReasoningBudget tuned = baseBudget.withEffort(chosenEffort);
+
+        TunedEntry entry = data.assignments.computeIfAbsent(tuningKey, k -> new TunedEntry());
+        entry.promptFingerprint = promptFingerprint;
+        entry.effort = tuned.effort();
+        entry.agreement = chosenAgreement;
+        entry.sampleSize = referenceResults.size();
+        entry.tunedTimestamp = Instant.now().toString();
+        save();
+
+        LOGGER.info("✓ Tuned reasoning budget for {}: {}", tuningKey, tuned);
+        return new TuningOutcome(tuned, referenceResults);
+    }
+
+    private boolean agrees(GradingResult reference, GradingResult candidate) {
+        return reference.mvpComplete() == candidate.mvpComplete()
+                && Math.abs(reference.score() - candidate.score()) <= scoreTolerance
+                && new HashSet<>(reference.stretchGoalsCompleted()).equals(new HashSet<>(candidate.stretchGoalsCompleted()));
+    }
+
+    // Inner classes for JSON structure
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class CacheData {
+        public Map<String, TunedEntry> assignments = new HashMap<>();
+        public String cache_version = CACHE_VERSION;
+        public String last_updated = Instant.now().toString();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class TunedEntry {
+        public String promptFingerprint;
+        public String effort;
+        public double agreement;
+        public int sampleSize;
+        public String tunedTimestamp;
+    }
+}
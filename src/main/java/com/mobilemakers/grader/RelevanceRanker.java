@@ -0,0 +1,134 @@
+package com.mobilemakers.grader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ranks a submission's files by how likely the rubric needs them, for submissions too large to send whole.
+ *
+ * Keywords are the code-like terms a rubric mentions: `backticked` names, camelCase identifiers,
+ * .modifiers and Type( calls. A file scores for each keyword it contains, views and the app entry point
+ * score higher, and tests, mocks and previews score lower.
+ */
+final class RelevanceRanker {
+
+    private static final Pattern BACKTICKED = Pattern.compile("`([^`\\n]+)`");
+    private static final Pattern CAMEL_CASE = Pattern.compile("\\b[a-z]+[A-Z][A-Za-z0-9]*\\b");
+    private static final Pattern MODIFIER = Pattern.compile("(?<![\\w.])\\.([a-z][A-Za-z0-9]{2,})\\b");
+    private static final Pattern TYPE_CALL = Pattern.compile("\\b([A-Z][A-Za-z0-9]{2,})\\(");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern DECLARATION = Pattern.compile(
+            "^\\s*(?:@\\w+\\s+)*(?:(?:public|private|fileprivate|internal|final|open|static)\\s+)*"
+                    + "(struct|class|enum|protocol|extension|actor|func)\\s+([A-Za-z_][A-Za-z0-9_.]*)",
+            Pattern.MULTILINE);
+
+    // Response-format fields and Swift keywords every rubric mentions; they say nothing about which file matters
+    private static final Set<String> STOP_WORDS = Set.of(
+            "maxscore", "mvpcomplete", "stretchgoalscompleted", "compileissues", "studentsummary",
+            "syntaxerrors", "strengths", "improvements", "feedback", "score",
+            "true", "false", "nil", "let", "var", "self", "func", "struct", "some");
+
+    private static final int KEYWORD_WEIGHT = 3;
+    private static final int MAX_SUMMARY_DECLARATIONS = 8;
+
+    private RelevanceRanker() {
+    }
+
+    /**
+     * Code-like terms in a rubric, lower-cased, in order of first appearance.
+     */
+    static List<String> keywords(String promptText) {
+        Set<String> keywords = new LinkedHashSet<>();
+        Matcher backticked = BACKTICKED.matcher(promptText);
+        while (backticked.find()) {
+            Matcher identifiers = IDENTIFIER.matcher(backticked.group(1));
+            while (identifiers.find()) {
+                addKeyword(keywords, identifiers.group());
+            }
+        }
+        for (Pattern pattern : List.of(CAMEL_CASE, MODIFIER, TYPE_CALL)) {
+            Matcher matcher = pattern.matcher(promptText);
+            while (matcher.find()) {
+                addKeyword(keywords, matcher.groupCount() > 0 ? matcher.group(1) : matcher.group());
+            }
+        }
+        return List.copyOf(keywords);
+    }
+
+    private static void addKeyword(Set<String> keywords, String word) {
+        String keyword = word.toLowerCase(Locale.ROOT);
+        if (keyword.length() >= 3 && !STOP_WORDS.contains(keyword)) {
+            keywords.add(keyword);
+        }
+    }
+
+    /**
+     * Relevance of one file; higher is more relevant.
+     *
+     * @param label File label as it appears in the merged code
+     * @param source File content
+     * @param keywords Lower-cased rubric keywords
+     */
+    static int score(String label, CharSequence source, List<String> keywords) {
+        String name = label.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+        String path = label.replace('\\', '/').toLowerCase(Locale.ROOT);
+
+        int score = 0;
+        if (name.contains("test") || path.contains("tests/") || name.contains("mock")) {
+            score -= 20;
+        }
+        if (name.contains("preview")) {
+            score -= 10;
+        }
+        if (name.equals("contentview.swift") || name.endsWith("app.swift")) {
+            score += 10;
+        }
+        if (name.contains("view")) {
+            score += 5;
+        } else if (name.contains("model") || name.contains("extension") || name.contains("+")) {
+            score -= 2;
+        }
+
+        if (!keywords.isEmpty()) {
+            String content = source.toString().toLowerCase(Locale.ROOT);
+            for (String keyword : keywords) {
+                if (content.contains(keyword)) {
+                    score += KEYWORD_WEIGHT;
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * One-line summary of a file left out of the prompt: line count and top declarations.
+     */
+    static String summarize(String label, CharSequence source) {
+        String text = source.toString().stripTrailing();
+        long lines = text.chars().filter(c -> c == '\n').count() + 1;
+        List<String> declarations = new ArrayList<>();
+        Matcher matcher = DECLARATION.matcher(text);
+        int found = 0;
+        while (matcher.find()) {
+            found++;
+            if (declarations.size() < MAX_SUMMARY_DECLARATIONS) {
+                declarations.add(matcher.group(1) + " " + matcher.group(2));
+            }
+        }
+
+        StringBuilder summary = new StringBuilder(label).append(" (").append(lines).append(" lines)");
+        if (!declarations.isEmpty()) {
+            summary.append(": ").append(String.join(", ", declarations));
+            if (found > declarations.size()) {
+                summary.append(", … ").append(found - declarations.size()).append(" more");
+            }
+        }
+        return summary.toString();
+    }
+}
@@ -1,22 +1,37 @@
 package com.mobilemakers.grader;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
 /**
@@ -26,6 +41,31 @@ import java.util.zip.ZipFile;
 public class SchoologySubmissionDownloader {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SchoologySubmissionDownloader.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Fingerprint of each student's extracted revision, kept next to the student folders
+    static final String SYNC_STATE_FILE = ".sync-state.json";
+
+    private static final int DOWNLOAD_BUFFER_BYTES = 64 * 1024;
+    private static final long MB = 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_BYTES = 25 * MB;
+    // Wait before retry n is RETRY_DELAY_MILLIS * 2^(n-1), capped, so a flaky connection gets time to recover
+    private static final long RETRY_DELAY_MILLIS = 2_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+
+    /**
+     * Result of a (conditional) download request.
+     *
+     * @param zip Downloaded archive, or null when the server answered 304 Not Modified
+     * @param lastModified Last-Modified header of the response, may be null
+     * @param etag ETag header of the response, may be null
+     */
+    private record Download(Path zip, String lastModified, String etag) {
+        boolean notModified() {
+            return zip == null;
+        }
+    }
 
     private final OkHttpClient client;
     private final String baseUrl;
@@ -33,6 +73,9 @@ public class SchoologySubmissionDownloader {
     private final String csrfKey;
     private final String csrfToken;
     private final SubmissionCache cache;
+    private final int extractThreads = Math.max(1, Config.getInt("SUBMISSION_EXTRACT_THREADS", 4));
+    private final int downloadAttempts = Math.max(1, Config.getInt("SCHOOLOGY_DOWNLOAD_ATTEMPTS", 5));
+    private final Path downloadDir;
 
     public SchoologySubmissionDownloader(String baseUrl, String sessionCookie,
                                           String csrfKey, String csrfToken) {
@@ -42,7 +85,16 @@ public class SchoologySubmissionDownloader {
     public SchoologySubmissionDownloader(String baseUrl, String sessionCookie,
                                           String csrfKey, String csrfToken,
                                           SubmissionCache cache) {
+        this(baseUrl, sessionCookie, csrfKey, csrfToken, cache, Path.of("submissions", ".downloads"));
+    }
+
+    /**
+     * @param downloadDir Folder for downloaded archives and the .part files of interrupted downloads
+     */
+    SchoologySubmissionDownloader(String baseUrl, String sessionCookie, String csrfKey, String csrfToken,
+                                  SubmissionCache cache, Path downloadDir) {
         this.baseUrl = baseUrl;
+        this.downloadDir = downloadDir;
         this.sessionCookie = sessionCookie;
         this.csrfKey = csrfKey;
         this.csrfToken = csrfToken;
@@ -64,66 +116,293 @@ public class SchoologySubmissionDownloader {
      * @throws IOException if download fails
      */
     public Path downloadSubmissions(String assignmentId, String assignmentName) throws IOException {
-        String url = baseUrl + "/assignment/" + assignmentId + "/dropbox/download_all";
+        return download(assignmentId, assignmentName, null, null).zip();
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .get()
-                .header("Cookie", sessionCookie)
-                .header("x-csrf-key", csrfKey)
-                .header("x-csrf-token", csrfToken)
-                .header("accept", "*/*")
-                .header("referer", baseUrl + "/assignment/" + assignmentId + "/info")
-                .build();
+    /**
+     * Downloads the class archive, sending the cached validators so an unchanged archive costs a single
+     * 304 response instead of a HEAD request followed by a full download.
+     *
+     * The archive is written to a .part file next to a small state file holding the response's validator.
+     * When the connection drops, the download resumes with a Range request guarded by If-Range, in this run
+     * or the next one; a server that ignores the range or has a newer archive answers 200 and the download
+     * starts over. The finished file is checked against the announced length and must open as a ZIP.
+     *
+     * @param ifModifiedSince Last-Modified value from the previous download, or null
+     * @param ifNoneMatch ETag from the previous download, or null
+     */
+    private Download download(String assignmentId, String assignmentName,
+                              String ifModifiedSince, String ifNoneMatch) throws IOException {
+        String url = baseUrl + "/assignment/" + assignmentId + "/dropbox/download_all";
+        String sanitizedName = assignmentName.replaceAll("\\s+", "_")
+                .replaceAll("[^a-zA-Z0-9_-]", "");
+        Files.createDirectories(downloadDir);
+        Path zip = downloadDir.resolve(sanitizedName + "_" + assignmentId + ".zip");
+        Path part = downloadDir.resolve(zip.getFileName() + ".part");
+        Path partState = downloadDir.resolve(zip.getFileName() + ".part.json");
+        PartialDownload partial = readPartialDownload(part, partState);
 
         LOGGER.info("Downloading submissions for assignment: {} (ID: {})", assignmentName, assignmentId);
         LOGGER.debug("Request URL: {}", url);
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorMsg = String.format("Failed to download submissions. HTTP %d: %s",
-                        response.code(), response.message());
-                LOGGER.error(errorMsg);
-
-                if (response.code() == 401) {
-                    throw new IOException("Authentication failed. Session cookie may be expired. " +
-                            "Please refresh .schoology-cookie file.");
-                } else if (response.code() == 403) {
-                    throw new IOException("Access forbidden. CSRF tokens may be invalid. " +
-                            "Please extract fresh tokens from browser DevTools.");
-                } else if (response.code() == 404) {
-                    throw new IOException("Assignment not found (ID: " + assignmentId + "). " +
-                            "Verify assignment ID is correct.");
+        for (int attempt = 1; ; attempt++) {
+            long offset = partial != null ? Files.size(part) : 0;
+            Request.Builder builder = new Request.Builder()
+                    .url(url)
+                    .get()
+                    .header("Cookie", sessionCookie)
+                    .header("x-csrf-key", csrfKey)
+                    .header("x-csrf-token", csrfToken)
+                    .header("accept", "*/*")
+                    .header("referer", baseUrl + "/assignment/" + assignmentId + "/info");
+            if (offset > 0) {
+                builder.header("Range", "bytes=" + offset + "-");
+                builder.header("If-Range", partial.validator());
+            } else {
+                if (ifModifiedSince != null && !ifModifiedSince.isBlank()) {
+                    builder.header("If-Modified-Since", ifModifiedSince);
+                }
+                if (ifNoneMatch != null && !ifNoneMatch.isBlank()) {
+                    builder.header("If-None-Match", ifNoneMatch);
                 }
+            }
 
-                throw new IOException(errorMsg);
+            try (Response response = client.newCall(builder.build()).execute()) {
+                if (response.code() == 304) {
+                    deletePartialDownload(part, partState);
+                    return new Download(null, ifModifiedSince, ifNoneMatch);
+                }
+                if (response.code() == 416) {
+                    deletePartialDownload(part, partState);
+                    partial = null;
+                    throw new IOException("Server rejected resuming at byte " + offset + ", starting over");
+                }
+                if (!response.isSuccessful()) {
+                    throw rejected(response, assignmentId);
+                }
+
+                // Check Content-Type header
+                String contentType = response.header("Content-Type", "");
+                if (!contentType.contains("zip") && !contentType.contains("octet-stream")) {
+                    LOGGER.warn("Unexpected Content-Type: {}. Expected application/zip.", contentType);
+                }
+
+                long[] range = response.code() == 206 ? parseContentRange(response.header("Content-Range")) : null;
+                boolean resumed = offset > 0 && range != null && range[0] == offset;
+                if (resumed) {
+                    LOGGER.info("↻ Resuming download at {} MB", offset / MB);
+                } else {
+                    if (offset > 0) {
+                        LOGGER.info("Server sent the whole archive instead of the rest of it, restarting download");
+                    }
+                    offset = 0;
+                    partial = new PartialDownload(response.header("ETag"), response.header("Last-Modified"),
+                            response.body().contentLength());
+                    if (partial.validator() != null) {
+                        MAPPER.writeValue(partState.toFile(), partial);
+                    } else {
+                        Files.deleteIfExists(partState);
+                    }
+                }
+
+                // Stream the ZIP to disk; class archives with videos can be hundreds of MB
+                MessageDigest digest = sha256();
+                if (offset > 0) {
+                    try (InputStream existing = Files.newInputStream(part)) {
+                        existing.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+                    }
+                }
+                long total = resumed ? range[1] : partial.length();
+                streamToFile(response.body(), part, offset, total, digest);
+                verifyArchive(part, total);
+
+                Files.move(part, zip, StandardCopyOption.REPLACE_EXISTING);
+                Files.deleteIfExists(partState);
+                LOGGER.debug("Last-Modified: {}, ETag: {}", partial.lastModified(), partial.etag());
+                return new Download(zip, partial.lastModified(), partial.etag());
+            } catch (DownloadRejectedException e) {
+                deletePartialDownload(part, partState);
+                throw e;
+            } catch (IOException e) {
+                if (partial == null || partial.validator() == null || e instanceof ZipException) {
+                    // Nothing to resume from, or the bytes cannot be trusted
+                    deletePartialDownload(part, partState);
+                    partial = null;
+                }
+                if (attempt >= downloadAttempts) {
+                    throw new IOException("Download failed after " + attempt + " attempt(s): " + e.getMessage(), e);
+                }
+                long delay = Math.min(MAX_RETRY_DELAY_MILLIS, RETRY_DELAY_MILLIS << (attempt - 1));
+                LOGGER.warn("⚠ Download interrupted at {} MB (attempt {}/{}), retrying in {} s: {}",
+                        Files.exists(part) ? Files.size(part) / MB : 0, attempt, downloadAttempts,
+                        delay / 1000, e.getMessage());
+                pauseBeforeRetry(delay);
             }
+        }
+    }
+
+    private static void pauseBeforeRetry(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry the download");
+        }
+    }
+
+    /**
+     * Thrown for HTTP errors that retrying cannot fix.
+     */
+    private static final class DownloadRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        DownloadRejectedException(String message) {
+            super(message);
+        }
+    }
 
-            // Check Content-Type header
-            String contentType = response.header("Content-Type", "");
-            if (!contentType.contains("zip") && !contentType.contains("octet-stream")) {
-                LOGGER.warn("Unexpected Content-Type: {}. Expected application/zip.", contentType);
+    private DownloadRejectedException rejected(Response response, String assignmentId) {
+        String errorMsg = String.format("Failed to download submissions. HTTP %d: %s",
+                response.code(), response.message());
+        LOGGER.error(errorMsg);
+
+        if (response.code() == 401) {
+            return new DownloadRejectedException("Authentication failed. Session cookie may be expired. " +
+                    "Please refresh .schoology-cookie file.");
+        } else if (response.code() == 403) {
+            return new DownloadRejectedException("Access forbidden. CSRF tokens may be invalid. " +
+                    "Please extract fresh tokens from browser DevTools.");
+        } else if (response.code() == 404) {
+            return new DownloadRejectedException("Assignment not found (ID: " + assignmentId + "). " +
+                    "Verify assignment ID is correct.");
+        }
+
+        return new DownloadRejectedException(errorMsg);
+    }
+
+    /**
+     * Validators and length of the response a .part file belongs to.
+     *
+     * @param etag ETag header, may be null
+     * @param lastModified Last-Modified header, may be null
+     * @param length Full archive length, or -1 if the server did not send it
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record PartialDownload(String etag, String lastModified, long length) {
+
+        /**
+         * If-Range value: a strong ETag, else Last-Modified, else null (the download cannot be resumed).
+         */
+        @JsonIgnore
+        String validator() {
+            if (etag != null && !etag.isBlank() && !etag.startsWith("W/")) {
+                return etag;
             }
+            return lastModified != null && !lastModified.isBlank() ? lastModified : null;
+        }
+    }
 
-            // Save ZIP file to temporary location
-            String sanitizedName = assignmentName.replaceAll("\\s+", "_")
-                    .replaceAll("[^a-zA-Z0-9_-]", "");
-            Path tempZip = Files.createTempFile(sanitizedName + "_", ".zip");
+    /**
+     * The state of a .part file left by an interrupted download, or null if there is nothing to resume.
+     */
+    private PartialDownload readPartialDownload(Path part, Path partState) {
+        if (Files.exists(part) && Files.exists(partState)) {
+            try {
+                PartialDownload partial = MAPPER.readValue(partState.toFile(), PartialDownload.class);
+                if (partial.validator() != null) {
+                    LOGGER.info("Found partial download {} ({} MB)", part.getFileName(), Files.size(part) / MB);
+                    return partial;
+                }
+            } catch (IOException e) {
+                LOGGER.warn("⚠ Failed to read {}, starting download over: {}", partState, e.getMessage());
+            }
+        }
+        deletePartialDownload(part, partState);
+        return null;
+    }
+
+    private void deletePartialDownload(Path part, Path partState) {
+        try {
+            Files.deleteIfExists(part);
+            Files.deleteIfExists(partState);
+        } catch (IOException e) {
+            LOGGER.warn("⚠ Failed to delete partial download {}: {}", part, e.getMessage());
+        }
+    }
 
-            // Download file
-            byte[] zipBytes = response.body().bytes();
-            Files.write(tempZip, zipBytes);
+    /**
+     * Parses "bytes start-end/total".
+     *
+     * @return {start, total}, with total -1 when it is "*"; null if the header is missing or malformed
+     */
+    static long[] parseContentRange(String contentRange) {
+        if (contentRange == null) {
+            return null;
+        }
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new long[]{Long.parseLong(matcher.group(1)), matcher.group(3).equals("*") ? -1 : Long.parseLong(matcher.group(3))};
+    }
 
-            long fileSizeKB = zipBytes.length / 1024;
-            LOGGER.info("✓ Downloaded {} KB to {}", fileSizeKB, tempZip.getFileName());
+    /**
+     * Checks a finished download: its length must match what the server announced, and its central
+     * directory must be readable, which fails for a truncated file or one spliced from two archive versions.
+     */
+    private void verifyArchive(Path zip, long expectedLength) throws IOException {
+        long size = Files.size(zip);
+        if (expectedLength >= 0 && size != expectedLength) {
+            throw new IOException("Download incomplete: have " + size + " of " + expectedLength + " bytes");
+        }
+        new ZipFile(zip.toFile()).close();
+        LOGGER.debug("Verified archive {} ({} bytes)", zip.getFileName(), size);
+    }
 
-            // Get Last-Modified header for caching
-            String lastModified = response.header("Last-Modified");
-            if (lastModified != null) {
-                LOGGER.debug("Last-Modified: {}", lastModified);
+    /**
+     * Copies a response body to a file through a fixed-size buffer, logging progress and throughput and
+     * updating the SHA-256 of the file as the bytes pass.
+     *
+     * @param offset Bytes already in the file; the body is appended after them, or replaces the file if 0
+     * @param expected Full file length, or -1 if unknown
+     */
+    private void streamToFile(ResponseBody body, Path target, long offset, long expected, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[DOWNLOAD_BUFFER_BYTES];
+        long total = offset;
+        long nextProgress = offset + PROGRESS_INTERVAL_BYTES;
+        long start = System.nanoTime();
+
+        OpenOption mode = offset > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (InputStream in = body.byteStream();
+             OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                digest.update(buffer, 0, read);
+                total += read;
+                if (total >= nextProgress) {
+                    if (expected > 0) {
+                        LOGGER.info("  … {} of {} MB ({}%)", total / MB, expected / MB, total * 100 / expected);
+                    } else {
+                        LOGGER.info("  … {} MB", total / MB);
+                    }
+                    nextProgress += PROGRESS_INTERVAL_BYTES;
+                }
             }
+        }
+
+        double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+        long received = total - offset;
+        LOGGER.info("✓ Downloaded {} KB to {} in {}s ({} MB/s, SHA-256 {})", received / 1024, target.getFileName(),
+                String.format("%.1f", seconds), String.format("%.1f", received / (double) MB / seconds),
+                HexFormat.of().formatHex(digest.digest()).substring(0, 12));
+    }
 
-            return tempZip;
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
     }
 
@@ -140,243 +419,310 @@ public class SchoologySubmissionDownloader {
      * @throws IOException if extraction fails
      */
     public Path extractAndOrganizeSubmissions(Path zipFile, String assignmentName) throws IOException {
-        LOGGER.info("Extracting and organizing submissions for: {}", assignmentName);
-
-        // Create temp extraction directory
-        Path tempExtractDir = Files.createTempDirectory("schoology_extract_");
-
-        try {
-            // Step 1: Extract ZIP file
-            extractZipFile(zipFile, tempExtractDir);
-
-            // Step 2: Find the root folder in the ZIP (Schoology wraps everything in one folder)
-            Path rootFolder = findRootFolder(tempExtractDir);
-
-            // Step 3: Create target submissions directory
-            String sanitizedName = assignmentName.replaceAll("\\s+", "_")
-                    .replaceAll("[^a-zA-Z0-9_-]", "");
-            Path submissionsDir = Path.of("submissions", sanitizedName);
-            Files.createDirectories(submissionsDir);
-
-            // Step 4: Process each student folder
-            try (Stream<Path> studentFolders = Files.list(rootFolder)) {
-                studentFolders.forEach(studentFolder -> {
-                    try {
-                        processStudentFolder(studentFolder, submissionsDir);
-                    } catch (IOException e) {
-                        LOGGER.error("Failed to process student folder: {}", studentFolder.getFileName(), e);
-                    }
-                });
-            }
-
-            LOGGER.info("✓ Organized submissions into: {}", submissionsDir);
-            return submissionsDir;
-
-        } finally {
-            // Clean up temp directory
-            deleteRecursively(tempExtractDir);
-            LOGGER.debug("Cleaned up temp directory: {}", tempExtractDir);
-        }
+        return extractAndOrganizeSubmissions(zipFile, assignmentName, Path.of("submissions"));
     }
 
     /**
-     * Extracts a ZIP file to the specified directory.
+     * Writes each student's latest revision straight from the ZIP to its final folder. The central directory
+     * is read once to choose the revisions, so older revisions are never inflated and nothing is staged in
+     * a temp tree.
+     *
+     * The folder is synced rather than rebuilt: a student whose chosen revision has the same files (names,
+     * sizes and CRCs) as last time is carried over from the current snapshot, a changed student is
+     * extracted again, and students no longer in the archive are dropped. One late resubmission rewrites
+     * one folder. Everything is staged in a new {@link SubmissionSnapshots} snapshot that is published only
+     * once complete, so graders never see a half-written folder.
+     *
+     * @param submissionsRoot Folder that holds one folder per assignment
      */
-    private void extractZipFile(Path zipFilePath, Path destDir) throws IOException {
-        LOGGER.debug("Extracting ZIP: {} to {}", zipFilePath.getFileName(), destDir);
-
-        try (ZipFile zipFile = new ZipFile(zipFilePath.toFile())) {
-            Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-            while (entries.hasMoreElements()) {
-                ZipEntry entry = entries.nextElement();
-                Path entryPath = destDir.resolve(entry.getName());
+    Path extractAndOrganizeSubmissions(Path zipFile, String assignmentName, Path submissionsRoot) throws IOException {
+        LOGGER.info("Extracting and organizing submissions for: {}", assignmentName);
 
-                if (entry.isDirectory()) {
-                    Files.createDirectories(entryPath);
-                } else {
-                    Files.createDirectories(entryPath.getParent());
-                    try (InputStream in = zipFile.getInputStream(entry);
-                         FileOutputStream out = new FileOutputStream(entryPath.toFile())) {
-                        in.transferTo(out);
+        String sanitizedName = assignmentName.replaceAll("\\s+", "_")
+                .replaceAll("[^a-zA-Z0-9_-]", "");
+        SubmissionSnapshots snapshots = new SubmissionSnapshots(submissionsRoot);
+        Path current = snapshots.current(sanitizedName);
+        Path staged = snapshots.stage(sanitizedName);
+
+        long start = System.nanoTime();
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            Map<String, StudentRevision> latest = latestRevisions(zip);
+
+            // Grading only reads sources, so screen recordings and asset catalogs are never inflated
+            List<StudentRevision> graded = new ArrayList<>();
+            long skippedBytes = 0;
+            int skippedFiles = 0;
+            for (StudentRevision revision : latest.values()) {
+                List<ZipEntry> kept = new ArrayList<>();
+                for (ZipEntry entry : revision.entries()) {
+                    if (isGradedFile(entry.getName().substring(revision.prefix().length()))) {
+                        kept.add(entry);
+                    } else {
+                        skippedFiles++;
+                        skippedBytes += Math.max(0, entry.getSize());
                     }
                 }
+                graded.add(new StudentRevision(revision.schoolUid(), revision.folder(), revision.number(), revision.prefix(), kept));
             }
-        }
-    }
 
-    /**
-     * Finds the root folder containing student submissions.
-     * Schoology ZIPs typically have a single top-level folder.
-     */
-    private Path findRootFolder(Path extractDir) throws IOException {
-        try (Stream<Path> contents = Files.list(extractDir)) {
-            List<Path> items = contents.collect(Collectors.toList());
-
-            // If there's only one folder, that's the root
-            if (items.size() == 1 && Files.isDirectory(items.get(0))) {
-                return items.get(0);
+            Map<String, String> previous = current != null ? readSyncState(current) : Map.of();
+            Map<String, String> synced = new TreeMap<>();
+            List<StudentRevision> changed = new ArrayList<>();
+            for (StudentRevision revision : graded) {
+                String fingerprint = revision.fingerprint();
+                if (fingerprint.equals(previous.get(revision.schoolUid()))
+                        && Files.isDirectory(current.resolve(revision.schoolUid()))) {
+                    SubmissionSnapshots.carryOver(current.resolve(revision.schoolUid()), staged.resolve(revision.schoolUid()));
+                    synced.put(revision.schoolUid(), fingerprint);
+                } else {
+                    changed.add(revision);
+                }
             }
+            int removed = current != null ? carryOverOtherFolders(current, staged, latest.keySet()) : 0;
 
-            // Otherwise, the extract dir is the root
-            return extractDir;
+            int threads = Math.max(1, Math.min(extractThreads, changed.size()));
+            Map<String, Long> written = extractStudents(zip, changed, staged, threads);
+            for (StudentRevision revision : changed) {
+                if (written.containsKey(revision.schoolUid())) {
+                    synced.put(revision.schoolUid(), revision.fingerprint());
+                }
+            }
+            writeSyncState(staged, synced);
+
+            long writtenBytes = written.values().stream().mapToLong(Long::longValue).sum();
+            LOGGER.info("✓ Synced {} student(s) into snapshot {}: {} rewritten ({} KB), {} unchanged, {} removed in {} ms on {} thread(s); skipped {} file(s) ({} KB) not needed for grading",
+                    graded.size(), staged.getFileName(), written.size(), writtenBytes / 1024, graded.size() - changed.size(),
+                    removed, (System.nanoTime() - start) / 1_000_000, threads, skippedFiles, skippedBytes / 1024);
+        } catch (IOException | RuntimeException e) {
+            snapshots.discard(staged);
+            throw e;
         }
+        return snapshots.publish(sanitizedName, staged);
     }
 
     /**
-     * Processes a single student's folder:
-     * 1. Extracts school_uid from folder name
-     * 2. Flattens revision folders (keeps most recent)
-     * 3. Moves files to target directory
+     * Student folders written by the last sync, with the fingerprint of the revision each one holds.
      */
-    private void processStudentFolder(Path studentFolder, Path submissionsDir) throws IOException {
-        if (!Files.isDirectory(studentFolder)) {
-            LOGGER.debug("Skipping non-directory: {}", studentFolder.getFileName());
-            return;
+    private Map<String, String> readSyncState(Path submissionsDir) {
+        Path stateFile = submissionsDir.resolve(SYNC_STATE_FILE);
+        if (!Files.exists(stateFile)) {
+            return Map.of();
         }
-
-        String folderName = studentFolder.getFileName().toString();
-
-        // Extract school_uid from "LastName, FirstName - school_uid"
-        String schoolUid = extractSchoolUid(folderName);
-        if (schoolUid == null) {
-            LOGGER.warn("Could not extract school_uid from folder: {}", folderName);
-            return;
+        try {
+            return MAPPER.readValue(stateFile.toFile(), new TypeReference<Map<String, String>>() { });
+        } catch (IOException e) {
+            LOGGER.warn("⚠ Failed to read {}, re-extracting every student: {}", stateFile, e.getMessage());
+            return Map.of();
         }
+    }
 
-        LOGGER.debug("Processing student: {} -> {}", folderName, schoolUid);
-
-        // Create target student directory
-        Path targetStudentDir = submissionsDir.resolve(schoolUid);
-        Files.createDirectories(targetStudentDir);
-
-        // Find and process revisions
-        flattenRevisions(studentFolder, targetStudentDir);
+    private void writeSyncState(Path submissionsDir, Map<String, String> state) throws IOException {
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(submissionsDir.resolve(SYNC_STATE_FILE).toFile(), state);
     }
 
     /**
-     * Extracts school_uid from Schoology folder name format.
-     * Format: "LastName, FirstName - school_uid"
-     * Example: "Castro, Marianna - s486002" -> "s486002"
+     * Carries over folders that are not student folders (e.g. added by hand). Student folders (named like a
+     * school_uid) whose student is no longer in the archive are stale and left behind.
+     *
+     * @return Number of stale student folders dropped
      */
-    private String extractSchoolUid(String folderName) {
-        int lastDashIndex = folderName.lastIndexOf(" - ");
-        if (lastDashIndex == -1) {
-            return null;
+    private int carryOverOtherFolders(Path current, Path staged, Set<String> students) throws IOException {
+        List<Path> folders;
+        try (Stream<Path> listing = Files.list(current)) {
+            folders = listing.filter(Files::isDirectory).toList();
         }
-
-        String uid = folderName.substring(lastDashIndex + 3).trim();
-
-        // Validate it looks like a school UID (starts with 's' followed by digits)
-        if (uid.matches("s\\d+")) {
-            return uid;
+        int stale = 0;
+        for (Path folder : folders) {
+            String name = folder.getFileName().toString();
+            if (!name.matches("s\\d+")) {
+                SubmissionSnapshots.carryOver(folder, staged.resolve(name));
+            } else if (!students.contains(name)) {
+                LOGGER.info("Removing stale submission folder: {}", name);
+                stale++;
+            }
         }
-
-        return null;
+        return stale;
     }
 
     /**
-     * Flattens revision folders and keeps only the most recent submission.
-     * Schoology format: "Revision N - Status/" folders
-     * Keeps: Most recent by last modified time
+     * Swift sources, Xcode project files and nested ZIPs; everything SwiftFileReader may read.
+     *
+     * @param relativeName Entry name below the student's revision folder
      */
-    private void flattenRevisions(Path studentFolder, Path targetDir) throws IOException {
-        // Find all revision folders
-        List<Path> revisionFolders = new ArrayList<>();
-
-        try (Stream<Path> contents = Files.list(studentFolder)) {
-            revisionFolders = contents
-                    .filter(Files::isDirectory)
-                    .filter(p -> p.getFileName().toString().startsWith("Revision "))
-                    .sorted(Comparator.comparing(this::getLastModifiedTime).reversed())
-                    .collect(Collectors.toList());
+    static boolean isGradedFile(String relativeName) {
+        if (ProjectSources.isSkippedPath(relativeName)) {
+            return false;
         }
+        String lower = relativeName.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".swift") || lower.endsWith(".zip")
+                || ProjectSources.xcodeProjectRoot(relativeName) != null;
+    }
 
-        if (revisionFolders.isEmpty()) {
-            LOGGER.warn("No revision folders found for student: {}", studentFolder.getFileName());
-            return;
-        }
+    /**
+     * Writes each student's entries on its own task; ZipFile allows concurrent entry streams.
+     * A student whose files cannot be written is logged and left out, as before.
+     *
+     * @return Bytes written per student that was extracted completely
+     */
+    private Map<String, Long> extractStudents(ZipFile zip, List<StudentRevision> revisions, Path submissionsDir, int threads) throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "submission-extractor-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        // Get most recent revision
-        Path mostRecentRevision = revisionFolders.get(0);
-        LOGGER.debug("Selected revision: {} (out of {} total)",
-                mostRecentRevision.getFileName(), revisionFolders.size());
+        try {
+            Map<String, Future<Long>> futures = new LinkedHashMap<>();
+            for (StudentRevision revision : revisions) {
+                futures.put(revision.schoolUid(), executor.submit(() -> extractStudent(zip, revision, submissionsDir)));
+            }
 
-        // Copy all files from most recent revision to target directory
-        try (Stream<Path> files = Files.list(mostRecentRevision)) {
-            files.forEach(file -> {
+            Map<String, Long> written = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Long>> future : futures.entrySet()) {
                 try {
-                    Path targetFile = targetDir.resolve(file.getFileName());
-                    if (Files.isDirectory(file)) {
-                        copyDirectoryRecursively(file, targetFile);
-                    } else {
-                        Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
-                    }
-                } catch (IOException e) {
-                    LOGGER.error("Failed to copy file: {}", file.getFileName(), e);
+                    written.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    LOGGER.error("Failed to process student folder: {}", future.getKey(), e.getCause());
                 }
-            });
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting submissions", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long extractStudent(ZipFile zip, StudentRevision revision, Path submissionsDir) throws IOException {
+        Path targetStudentDir = submissionsDir.resolve(revision.schoolUid());
+        Files.createDirectories(targetStudentDir);
+        LOGGER.debug("Selected revision: {} for {}", revision.folder(), revision.schoolUid());
+        long written = 0;
+        for (ZipEntry entry : revision.entries()) {
+            written += writeEntry(zip, entry, targetStudentDir, entry.getName().substring(revision.prefix().length()));
         }
+        return written;
     }
 
     /**
-     * Gets the last modified time of a path, handling errors gracefully.
+     * One student's most recent revision in the class archive.
+     *
+     * @param schoolUid Target folder name
+     * @param folder Revision folder name, e.g. "Revision 2 - Late"
+     * @param number Revision number parsed from the folder name
+     * @param prefix Entry-name prefix up to and including the revision folder
+     * @param entries File entries below the revision folder
      */
-    private FileTime getLastModifiedTime(Path path) {
-        try {
-            return Files.getLastModifiedTime(path);
-        } catch (IOException e) {
-            LOGGER.warn("Could not get modified time for: {}", path);
-            return FileTime.fromMillis(0);
+    private record StudentRevision(String schoolUid, String folder, int number, String prefix, List<ZipEntry> entries) {
+
+        /**
+         * Digest of the revision's file names, sizes and CRCs, read from the central directory without inflating.
+         */
+        String fingerprint() {
+            MessageDigest digest = sha256();
+            entries.stream()
+                    .sorted(Comparator.comparing(ZipEntry::getName))
+                    .forEach(entry -> digest.update((entry.getName().substring(prefix.length()) + '\0'
+                            + entry.getSize() + '\0' + entry.getCrc() + '\n').getBytes(StandardCharsets.UTF_8)));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
         }
     }
 
     /**
-     * Recursively copies a directory.
+     * Picks each student's highest-numbered revision from the central directory.
+     * Schoology wraps everything in one top-level folder, which is skipped when present.
      */
-    private void copyDirectoryRecursively(Path source, Path target) throws IOException {
-        Files.walkFileTree(source, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                Path targetDir = target.resolve(source.relativize(dir));
-                Files.createDirectories(targetDir);
-                return FileVisitResult.CONTINUE;
+    private Map<String, StudentRevision> latestRevisions(ZipFile zip) {
+        List<? extends ZipEntry> entries = Collections.list(zip.entries());
+        String root = commonRoot(entries);
+
+        Map<String, StudentRevision> latest = new TreeMap<>();
+        Set<String> studentsWithoutRevisions = new TreeSet<>();
+        Set<String> unknownFolders = new TreeSet<>();
+        for (ZipEntry entry : entries) {
+            String[] parts = entry.getName().substring(root.length()).split("/", 3);
+            if (parts.length < 2 || parts[0].isEmpty()) {
+                continue;
+            }
+            String schoolUid = SubmissionManifest.schoolUid(parts[0]);
+            if (schoolUid == null) {
+                unknownFolders.add(parts[0]);
+                continue;
+            }
+            if (parts.length < 3 || !parts[1].startsWith("Revision ")) {
+                studentsWithoutRevisions.add(parts[0]);
+                continue;
             }
 
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                Files.copy(file, target.resolve(source.relativize(file)), StandardCopyOption.REPLACE_EXISTING);
-                return FileVisitResult.CONTINUE;
+            int number = SubmissionManifest.parseRevisionNumber(parts[1]);
+            StudentRevision current = latest.get(schoolUid);
+            if (current == null || number > current.number()) {
+                current = new StudentRevision(schoolUid, parts[1], number,
+                        root + parts[0] + "/" + parts[1] + "/", new ArrayList<>());
+                latest.put(schoolUid, current);
             }
-        });
+            if (current.folder().equals(parts[1]) && !entry.isDirectory() && !parts[2].isEmpty()) {
+                current.entries().add(entry);
+            }
+        }
+
+        for (String folder : unknownFolders) {
+            LOGGER.warn("Could not extract school_uid from folder: {}", folder);
+        }
+        for (String folder : studentsWithoutRevisions) {
+            if (!latest.containsKey(SubmissionManifest.schoolUid(folder))) {
+                LOGGER.warn("No revision folders found for student: {}", folder);
+            }
+        }
+        return latest;
     }
 
     /**
-     * Recursively deletes a directory and all its contents.
+     * The single top-level folder every entry sits under, or "" if there is none or it is itself a
+     * student folder (a class with one submission).
      */
-    private void deleteRecursively(Path path) {
-        try {
-            Files.walkFileTree(path, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Files.delete(file);
-                    return FileVisitResult.CONTINUE;
-                }
+    private String commonRoot(List<? extends ZipEntry> entries) {
+        String root = null;
+        for (ZipEntry entry : entries) {
+            int slash = entry.getName().indexOf('/');
+            if (slash < 0) {
+                return "";
+            }
+            String top = entry.getName().substring(0, slash + 1);
+            if (root == null) {
+                root = top;
+            } else if (!root.equals(top)) {
+                return "";
+            }
+        }
+        if (root == null || SubmissionManifest.schoolUid(root.substring(0, root.length() - 1)) != null) {
+            return "";
+        }
+        return root;
+    }
 
-                @Override
-                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                    Files.delete(dir);
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        } catch (IOException e) {
-            LOGGER.warn("Failed to delete directory: {}", path, e);
+    /**
+     * Writes one entry below a student folder, refusing names that would escape it.
+     *
+     * @return Bytes written
+     */
+    private long writeEntry(ZipFile zip, ZipEntry entry, Path targetDir, String relativeName) throws IOException {
+        Path target = targetDir.resolve(relativeName).normalize();
+        if (!target.startsWith(targetDir)) {
+            LOGGER.warn("Skipping ZIP entry outside its student folder: {}", entry.getName());
+            return 0;
+        }
+        Files.createDirectories(target.getParent());
+        try (InputStream in = zip.getInputStream(entry)) {
+            return Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
     /**
      * Downloads and extracts submissions with caching support.
-     * Checks cache first - only downloads if server has updates.
+     * Sends one conditional GET with the cached Last-Modified and ETag; a 304 reuses the cached folder.
      *
      * @param assignmentId Schoology assignment ID
      * @param assignmentName Human-readable assignment name
@@ -387,32 +733,24 @@ public class SchoologySubmissionDownloader {
         // If no cache provided, always download
         if (cache == null) {
             LOGGER.debug("No cache configured, downloading submissions");
-            Path zipFile = downloadSubmissions(assignmentId, assignmentName);
-            return extractAndOrganizeSubmissions(zipFile, assignmentName);
+            return extract(download(assignmentId, assignmentName, null, null), assignmentName);
         }
 
-        // Check server's Last-Modified header
-        String serverLastModified = getServerLastModified(assignmentId);
+        // Only ask for a 304 when the cached folder is still there to fall back on
+        String cachedPath = usableCachedPath(assignmentId, false);
+        Download download = cachedPath != null
+                ? download(assignmentId, assignmentName, cache.getLastModified(assignmentId), cache.getETag(assignmentId))
+                : download(assignmentId, assignmentName, null, null);
 
-        // Check if download is needed
-        if (!cache.needsDownload(assignmentId, serverLastModified)) {
-            // Cache hit - return cached path
-            String cachedPath = cache.getCachedPath(assignmentId);
-            if (cachedPath != null && Files.exists(Path.of(cachedPath))) {
-                LOGGER.info("⊘ Using cached submissions from: {}", cachedPath);
-                return Path.of(cachedPath);
-            } else {
-                LOGGER.warn("Cache entry exists but path not found, re-downloading");
-            }
+        if (download.notModified()) {
+            LOGGER.info("⊘ Submissions unchanged (HTTP 304), using cached submissions from: {}", cachedPath);
+            return Path.of(cachedPath);
         }
 
-        // Cache miss - download and extract
-        LOGGER.info("→ Downloading fresh submissions for: {}", assignmentName);
-        Path zipFile = downloadSubmissions(assignmentId, assignmentName);
-        Path submissionsDir = extractAndOrganizeSubmissions(zipFile, assignmentName);
+        Path submissionsDir = extract(download, assignmentName);
 
         // Update cache
-        cache.updateDownload(assignmentId, assignmentName, serverLastModified,
+        cache.updateDownload(assignmentId, assignmentName, download.lastModified(), download.etag(),
                 submissionsDir.toString());
         cache.save();
 
@@ -420,38 +758,59 @@ public class SchoologySubmissionDownloader {
     }
 
     /**
-     * Checks the server's Last-Modified header for an assignment without downloading.
-     * Uses a HEAD request for efficiency.
+     * Downloads the class archive if it changed and opens it for grading without extracting it.
+     * The archive is kept in the downloads folder so the next run can reuse it on a 304.
      *
-     * @param assignmentId Assignment ID
-     * @return Last-Modified header value, or null if not available
+     * @param assignmentId Schoology assignment ID
+     * @param assignmentName Human-readable assignment name
+     * @return The opened archive; the caller closes it once grading is done
+     * @throws IOException if the download fails or the archive cannot be opened
      */
-    private String getServerLastModified(String assignmentId) {
-        String url = baseUrl + "/assignment/" + assignmentId + "/dropbox/download_all";
+    public SubmissionArchive downloadArchiveIfNeeded(String assignmentId, String assignmentName) throws IOException {
+        String cachedPath = cache != null ? usableCachedPath(assignmentId, true) : null;
+        Download download = cachedPath != null
+                ? download(assignmentId, assignmentName, cache.getLastModified(assignmentId), cache.getETag(assignmentId))
+                : download(assignmentId, assignmentName, null, null);
+
+        if (download.notModified()) {
+            LOGGER.info("⊘ Submissions unchanged (HTTP 304), using cached archive: {}", cachedPath);
+            return SubmissionArchive.open(Path.of(cachedPath));
+        }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .head() // HEAD request - no body downloaded
-                .header("Cookie", sessionCookie)
-                .header("x-csrf-key", csrfKey)
-                .header("x-csrf-token", csrfToken)
-                .header("accept", "*/*")
-                .header("referer", baseUrl + "/assignment/" + assignmentId + "/info")
-                .build();
+        if (cache != null) {
+            cache.updateDownload(assignmentId, assignmentName, download.lastModified(), download.etag(),
+                    download.zip().toString());
+            cache.save();
+        }
+        return SubmissionArchive.open(download.zip());
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                String lastModified = response.header("Last-Modified");
-                LOGGER.debug("Server Last-Modified for assignment {}: {}", assignmentId, lastModified);
-                return lastModified;
-            } else {
-                LOGGER.warn("HEAD request failed for assignment {} (HTTP {}), will download anyway",
-                        assignmentId, response.code());
-                return null;
-            }
-        } catch (IOException e) {
-            LOGGER.warn("Failed to check Last-Modified header: {}", e.getMessage());
+    /**
+     * The cached path for an assignment if it still exists in the expected form: an extracted folder, or the
+     * kept archive when grading from the ZIP. The cache may hold either when GRADE_FROM_ARCHIVE is switched.
+     */
+    private String usableCachedPath(String assignmentId, boolean archive) {
+        String cachedPath = cache.getCachedPath(assignmentId);
+        if (cachedPath == null) {
             return null;
         }
+        Path path = Path.of(cachedPath);
+        if (archive ? Files.isRegularFile(path) : Files.isDirectory(path)) {
+            return cachedPath;
+        }
+        LOGGER.warn("Cache entry exists but no {} found at {}, re-downloading", archive ? "archive" : "folder", cachedPath);
+        return null;
+    }
+
+    /**
+     * Organizes a downloaded class archive and deletes the temporary ZIP.
+     */
+    private Path extract(Download download, String assignmentName) throws IOException {
+        try {
+            return extractAndOrganizeSubmissions(download.zip(), assignmentName);
+        } finally {
+            Files.deleteIfExists(download.zip());
+            LOGGER.debug("Deleted downloaded archive: {}", download.zip());
+        }
     }
 }
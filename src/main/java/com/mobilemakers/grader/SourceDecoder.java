@@ -0,0 +1,117 @@
+package com.mobilemakers.grader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decodes UTF-8 source files straight into a caller's StringBuilder.
+ *
+ * Each loader thread keeps one decoder with its own byte and char buffers, so reading a file does not
+ * allocate an intermediate byte[] or String. Files larger than {@link #MAP_THRESHOLD} are memory-mapped
+ * instead of copied through the buffer. Malformed bytes are replaced with U+FFFD, the same as the ZIP path
+ * always did, instead of failing the whole student.
+ */
+final class SourceDecoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+    private static final ThreadLocal<SourceDecoder> CURRENT = ThreadLocal.withInitial(SourceDecoder::new);
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer fileBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer streamBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    private SourceDecoder() {
+    }
+
+    /**
+     * The calling thread's decoder. Not thread-safe; never hand it to another thread.
+     */
+    static SourceDecoder current() {
+        return CURRENT.get();
+    }
+
+    void appendFile(Path file, StringBuilder out) throws IOException {
+        if (file.getFileSystem() != FileSystems.getDefault()) {
+            // Zip file system channels cannot be mapped
+            try (InputStream input = Files.newInputStream(file)) {
+                appendStream(input, out);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                decodeAll(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), out);
+                return;
+            }
+
+            decoder.reset();
+            fileBuffer.clear();
+            while (channel.read(fileBuffer) != -1) {
+                fileBuffer.flip();
+                decode(fileBuffer, out, false);
+                fileBuffer.compact();
+            }
+            fileBuffer.flip();
+            decode(fileBuffer, out, true);
+            flush(out);
+        }
+    }
+
+    void appendStream(InputStream input, StringBuilder out) throws IOException {
+        decoder.reset();
+        streamBuffer.clear();
+        int read;
+        while ((read = input.read(streamBuffer.array(), streamBuffer.position(), streamBuffer.remaining())) != -1) {
+            streamBuffer.position(streamBuffer.position() + read);
+            streamBuffer.flip();
+            decode(streamBuffer, out, false);
+            streamBuffer.compact();
+        }
+        streamBuffer.flip();
+        decode(streamBuffer, out, true);
+        flush(out);
+    }
+
+    private void decodeAll(ByteBuffer bytes, StringBuilder out) {
+        decoder.reset();
+        decode(bytes, out, true);
+        flush(out);
+    }
+
+    private void decode(ByteBuffer bytes, StringBuilder out, boolean endOfInput) {
+        CoderResult result;
+        do {
+            result = decoder.decode(bytes, chars, endOfInput);
+            drain(out);
+        } while (result.isOverflow());
+    }
+
+    private void flush(StringBuilder out) {
+        while (decoder.flush(chars).isOverflow()) {
+            drain(out);
+        }
+        drain(out);
+    }
+
+    private void drain(StringBuilder out) {
+        chars.flip();
+        out.append(chars.array(), chars.position(), chars.remaining());
+        chars.clear();
+    }
+}
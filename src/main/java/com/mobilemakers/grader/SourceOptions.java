@@ -0,0 +1,75 @@
+package com.mobilemakers.grader;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * How a submission's Swift files are turned into the code that goes into the prompt.
+ *
+ * @param minify Strip comments, whitespace, previews, Package.swift and generated files before prompting
+ * @param starterDirectory Starter project the assignment hands out; files matching it are left out of the prompt. May be null.
+ * @param maxChars Size budget for the merged code; larger submissions keep their most relevant files. 0 means unlimited.
+ * @param relevanceKeywords Lower-cased rubric terms used to rank files when the budget is exceeded
+ */
+public record SourceOptions(boolean minify, Path starterDirectory, int maxChars, List<String> relevanceKeywords) {
+
+    public static final SourceOptions VERBATIM = new SourceOptions(false, null, 0, List.of());
+
+    public SourceOptions {
+        if (maxChars < 0) {
+            throw new IllegalArgumentException("Max submission chars must not be negative: " + maxChars);
+        }
+        relevanceKeywords = relevanceKeywords == null ? List.of() : List.copyOf(relevanceKeywords);
+    }
+
+    public SourceOptions(boolean minify) {
+        this(minify, null, 0, List.of());
+    }
+
+    /**
+     * Loads the global defaults from MINIFY_SUBMISSIONS and MAX_SUBMISSION_CHARS.
+     */
+    public static SourceOptions fromEnvironment() {
+        return new SourceOptions(Config.getBoolean("MINIFY_SUBMISSIONS", false), null,
+                Math.max(0, Config.getInt("MAX_SUBMISSION_CHARS", 120_000)), List.of());
+    }
+
+    public SourceOptions withStarterDirectory(Path directory) {
+        return new SourceOptions(minify, directory, maxChars, relevanceKeywords);
+    }
+
+    public SourceOptions withMaxChars(int chars) {
+        return new SourceOptions(minify, starterDirectory, chars, relevanceKeywords);
+    }
+
+    public SourceOptions withRelevanceKeywords(List<String> keywords) {
+        return new SourceOptions(minify, starterDirectory, maxChars, keywords);
+    }
+
+    /**
+     * Part of the content-store key, so merged text produced with different options is never shared.
+     * It never decides whether a submission is re-graded. The starter's contents are added by the reader
+     * once the baseline is loaded.
+     */
+    public String variant() {
+        String variant = (minify ? "minify" : "verbatim") + (starterDirectory != null ? "+starter" : "");
+        if (maxChars > 0) {
+            variant += "+budget=" + maxChars + ":" + keywordDigest();
+        }
+        return variant;
+    }
+
+    private String keywordDigest() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.join("\n", relevanceKeywords).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.mobilemakers.grader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The starter project every student begins from, used to send only student-authored code.
+ *
+ * Starter files are matched to submitted files by file name, since students move files between groups
+ * and ZIP labels only carry the name. A submitted file identical to its starter file (ignoring trailing
+ * whitespace) is left out of the prompt entirely; a modified one is sent as line hunks against the starter.
+ * Files without a starter counterpart are sent whole.
+ */
+final class StarterBaseline {
+
+    private static final int CONTEXT_LINES = 2;
+
+    // Line diff is O(n*m); above this the file is sent whole instead
+    private static final long MAX_DIFF_CELLS = 4_000_000L;
+
+    // A diff that is nearly as long as the file is harder to read than the file itself
+    private static final double MAX_DIFF_RATIO = 0.8;
+
+    private final Map<String, List<String>> files;
+    private final String fingerprint;
+
+    private StarterBaseline(Map<String, List<String>> files, String fingerprint) {
+        this.files = files;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Loads every .swift file under a starter directory.
+     *
+     * @param starterDirectory Starter project folder
+     * @param minify Minify starter files the same way submissions are, so both sides compare equal
+     */
+    static StarterBaseline load(Path starterDirectory, boolean minify) throws IOException {
+        List<Path> swiftFiles;
+        try (Stream<Path> walk = Files.walk(starterDirectory)) {
+            swiftFiles = walk.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".swift"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        MessageDigest digest = sha256();
+        Map<String, List<String>> files = new LinkedHashMap<>();
+        for (Path file : swiftFiles) {
+            String name = file.getFileName().toString();
+            if (files.containsKey(name)) {
+                continue;
+            }
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            if (minify) {
+                content = SwiftMinifier.minify(content);
+            }
+            files.put(name, lines(content));
+            digest.update((name + '\0' + content + '\0').getBytes(StandardCharsets.UTF_8));
+        }
+        return new StarterBaseline(files, HexFormat.of().formatHex(digest.digest(), 0, 8));
+    }
+
+    int size() {
+        return files.size();
+    }
+
+    /**
+     * Short hash of the starter contents, so stored merges are not reused after the starter changes.
+     */
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Compares a submitted file to its starter counterpart.
+     *
+     * @param label Label of the submitted file; only the file name is used for matching
+     * @param source Submitted source, prepared the same way as the baseline
+     * @return The comparison outcome
+     */
+    Comparison compare(String label, CharSequence source) {
+        String name = label.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1);
+        List<String> starter = files.get(name);
+        if (starter == null) {
+            return Comparison.NEW_FILE;
+        }
+
+        List<String> submitted = lines(source);
+        if (starter.equals(submitted)) {
+            return Comparison.UNCHANGED;
+        }
+        if ((long) starter.size() * submitted.size() > MAX_DIFF_CELLS) {
+            return Comparison.NEW_FILE;
+        }
+        String hunks = hunks(starter, submitted);
+        if (hunks.length() > source.length() * MAX_DIFF_RATIO) {
+            return Comparison.NEW_FILE;
+        }
+        return new Comparison(Kind.MODIFIED, hunks);
+    }
+
+    enum Kind { NEW_FILE, UNCHANGED, MODIFIED }
+
+    /**
+     * @param kind How the file relates to the starter
+     * @param hunks Diff text for modified files, otherwise null
+     */
+    record Comparison(Kind kind, String hunks) {
+        static final Comparison NEW_FILE = new Comparison(Kind.NEW_FILE, null);
+        static final Comparison UNCHANGED = new Comparison(Kind.UNCHANGED, null);
+    }
+
+    /**
+     * Line hunks in unified-diff style: " " context, "-" starter line removed, "+" student line added.
+     * Each hunk starts with "@@ starter line N @@".
+     */
+    static String hunks(List<String> starter, List<String> submitted) {
+        int n = starter.size();
+        int m = submitted.size();
+
+        // Longest common subsequence table, filled from the end so the walk below goes forwards
+        int[][] lcs = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                lcs[i][j] = starter.get(i).equals(submitted.get(j))
+                        ? lcs[i + 1][j + 1] + 1
+                        : Math.max(lcs[i + 1][j], lcs[i][j + 1]);
+            }
+        }
+
+        List<Line> script = new ArrayList<>(Math.max(n, m));
+        int i = 0;
+        int j = 0;
+        while (i < n || j < m) {
+            if (i < n && j < m && starter.get(i).equals(submitted.get(j))) {
+                script.add(new Line(' ', starter.get(i), i));
+                i++;
+                j++;
+            } else if (i < n && (j == m || lcs[i + 1][j] >= lcs[i][j + 1])) {
+                script.add(new Line('-', starter.get(i), i));
+                i++;
+            } else {
+                script.add(new Line('+', submitted.get(j), i));
+                j++;
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        int index = 0;
+        while (index < script.size()) {
+            if (script.get(index).op() == ' ') {
+                index++;
+                continue;
+            }
+            int start = Math.max(0, index - CONTEXT_LINES);
+            int end = index;
+            // Extend the hunk while the next change is within two context windows
+            int lastChange = index;
+            while (end < script.size()) {
+                if (script.get(end).op() != ' ') {
+                    lastChange = end;
+                } else if (end - lastChange > 2 * CONTEXT_LINES) {
+                    break;
+                }
+                end++;
+            }
+            end = Math.min(script.size(), lastChange + 1 + CONTEXT_LINES);
+
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append("@@ starter line ").append(script.get(start).starterLine() + 1).append(" @@");
+            for (int k = start; k < end; k++) {
+                Line line = script.get(k);
+                out.append('\n').append(line.op()).append(line.text());
+            }
+            index = end;
+        }
+        return out.toString();
+    }
+
+    private record Line(char op, String text, int starterLine) {
+    }
+
+    private static List<String> lines(CharSequence content) {
+        List<String> lines = new ArrayList<>();
+        for (String line : content.toString().split("\n", -1)) {
+            lines.add(line.stripTrailing());
+        }
+        while (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+            lines.remove(lines.size() - 1);
+        }
+        return lines;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.mobilemakers.grader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A student's submission directory. The merged Swift code is only read when {@link #loadCode()} is called,
+ * so a grading run holds the code of in-flight submissions only, not of the whole class.
+ */
+public class StudentSubmission {
+
+    private final String studentKey;
+    private final Path directory;
+    private final SwiftFileReader reader;
+    private SubmissionManifest manifest;
+    private String sourceHash;
+    private boolean sourceHashed;
+
+    StudentSubmission(String studentKey, Path directory, SwiftFileReader reader) {
+        this.studentKey = studentKey;
+        this.directory = directory;
+        this.reader = reader;
+    }
+
+    /**
+     * Student folder name (e.g. "s123456"). Inside a downloaded archive, the school UID taken from the
+     * "LastName, FirstName - school_uid" folder name.
+     */
+    public String studentKey() {
+        return studentKey;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Walks the submission directory on first use; revision checks and code loading share the result.
+     */
+    public synchronized SubmissionManifest manifest() throws IOException {
+        if (manifest == null) {
+            manifest = SubmissionManifest.scan(directory);
+        }
+        return manifest;
+    }
+
+    public int highestRevision() throws IOException {
+        return manifest().highestRevision();
+    }
+
+    /**
+     * Hash of the submission's files from the reader's fingerprint index, computed once; null when the
+     * index is disabled.
+     */
+    public synchronized String sourceHash() throws IOException {
+        if (!sourceHashed) {
+            sourceHash = reader.sourceHash(manifest());
+            sourceHashed = true;
+        }
+        return sourceHash;
+    }
+
+    /**
+     * Reads the merged Swift code of the latest submission. The code itself is not kept in memory;
+     * it is served from the reader's content store when unchanged, otherwise merged from disk.
+     *
+     * @return Merged Swift code, or an empty string if no Swift files were found
+     */
+    public String loadCode() throws IOException {
+        return reader.readLatestSubmission(manifest(), sourceHash());
+    }
+
+    @Override
+    public String toString() {
+        return studentKey;
+    }
+}
@@ -0,0 +1,97 @@
+package com.mobilemakers.grader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A downloaded class archive opened as a read-only zip file system, so SwiftFileReader can grade the
+ * "LastName, FirstName - school_uid/Revision N - On time/..." tree without extracting it.
+ *
+ * Nothing is written to disk: SubmissionManifest walks the archive's directories, Swift files are decoded
+ * from their entry streams and a ZIP a student uploaded is read from the archive like any nested ZIP.
+ * Revision folders are kept as they are; the reader picks the highest-numbered one, and the submission index
+ * hashes it like the extracted folder, so switching between the two modes does not re-grade anyone.
+ */
+public final class SubmissionArchive implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionArchive.class);
+
+    // Open archives by file system, so the submission index can key entries by the archive they come from
+    private static final Map<FileSystem, Path> OPEN_ARCHIVES = new ConcurrentHashMap<>();
+
+    private final Path archive;
+    private final FileSystem fileSystem;
+    private final Path root;
+
+    private SubmissionArchive(Path archive, FileSystem fileSystem, Path root) {
+        this.archive = archive;
+        this.fileSystem = fileSystem;
+        this.root = root;
+    }
+
+    /**
+     * Opens a class archive. The file system is never written to, so the archive is left unchanged on close.
+     */
+    public static SubmissionArchive open(Path archive) throws IOException {
+        FileSystem fileSystem = FileSystems.newFileSystem(archive);
+        try {
+            Path root = studentsRoot(fileSystem.getPath("/"));
+            LOGGER.info("✓ Opened {} for grading without extraction", archive.getFileName());
+            OPEN_ARCHIVES.put(fileSystem, archive.toAbsolutePath().normalize());
+            return new SubmissionArchive(archive, fileSystem, root);
+        } catch (IOException | RuntimeException e) {
+            fileSystem.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Folder holding one folder per student: Schoology's single wrapper folder when there is one.
+     */
+    private static Path studentsRoot(Path top) throws IOException {
+        List<Path> children;
+        try (Stream<Path> listing = Files.list(top)) {
+            children = listing.toList();
+        }
+        if (children.size() == 1 && Files.isDirectory(children.get(0))
+                && SubmissionManifest.schoolUid(children.get(0).getFileName().toString()) == null) {
+            return children.get(0);
+        }
+        return top;
+    }
+
+    /**
+     * Directory to pass to SwiftFileReader; valid until {@link #close()}.
+     */
+    public Path root() {
+        return root;
+    }
+
+    public Path archive() {
+        return archive;
+    }
+
+    /**
+     * The archive a path belongs to, or null if the path is not inside an open SubmissionArchive.
+     */
+    static Path archiveOf(Path path) {
+        return OPEN_ARCHIVES.get(path.getFileSystem());
+    }
+
+    @Override
+    public void close() throws IOException {
+        OPEN_ARCHIVES.remove(fileSystem);
+        fileSystem.close();
+    }
+}
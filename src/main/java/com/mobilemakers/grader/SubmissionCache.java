@@ -14,7 +14,8 @@ import java.util.Map;
 
 /**
  * Manages a persistent cache of downloaded submissions to avoid redundant downloads.
- * Tracks Last-Modified headers from Schoology to detect when assignments have new submissions.
+ * Tracks the Last-Modified and ETag headers from Schoology, which are sent back as conditional request
+ * headers to detect when assignments have new submissions.
  *
  * Cache structure:
  * {
@@ -22,6 +23,7 @@ import java.util.Map;
  *     "8017693525": {
  *       "assignmentName": "Constants Variables Datatypes",
  *       "lastModified": "Mon, 20 Oct 2025 14:11:13 GMT",
+ *       "etag": "\"5f3c-62a1b\"",
  *       "lastDownloaded": "2025-10-20T14:30:00Z",
  *       "downloadedPath": "submissions/Constants_Variables_Datatypes"
  *     }
@@ -85,39 +87,25 @@ public class SubmissionCache {
     }
 
     /**
-     * Check if submissions for an assignment need to be downloaded.
+     * Last-Modified header from the previous download, for If-Modified-Since.
      *
      * @param assignmentId Assignment ID
-     * @param serverLastModified Last-Modified header from server (can be null)
-     * @return true if download is needed, false if cache is fresh
+     * @return Header value, or null if not cached or the server sent none
      */
-    public boolean needsDownload(String assignmentId, String serverLastModified) {
+    public String getLastModified(String assignmentId) {
         AssignmentCacheEntry entry = data.assignments.get(assignmentId);
+        return entry != null ? entry.lastModified : null;
+    }
 
-        // No cache entry - need to download
-        if (entry == null) {
-            LOGGER.debug("No cache entry for assignment {}, download needed", assignmentId);
-            return true;
-        }
-
-        // Server didn't provide Last-Modified header - safer to re-download
-        if (serverLastModified == null || serverLastModified.isBlank()) {
-            LOGGER.debug("Server provided no Last-Modified header, re-downloading to be safe");
-            return true;
-        }
-
-        // Compare Last-Modified headers
-        boolean isFresh = serverLastModified.equals(entry.lastModified);
-
-        if (isFresh) {
-            LOGGER.info("✓ Cache hit for assignment {} - submissions unchanged since {}",
-                    assignmentId, entry.lastDownloaded);
-        } else {
-            LOGGER.info("→ Cache miss for assignment {} - server has updates (server: {}, cached: {})",
-                    assignmentId, serverLastModified, entry.lastModified);
-        }
-
-        return !isFresh;
+    /**
+     * ETag header from the previous download, for If-None-Match.
+     *
+     * @param assignmentId Assignment ID
+     * @return Header value, or null if not cached or the server sent none
+     */
+    public String getETag(String assignmentId) {
+        AssignmentCacheEntry entry = data.assignments.get(assignmentId);
+        return entry != null ? entry.etag : null;
     }
 
     /**
@@ -126,19 +114,21 @@ public class SubmissionCache {
      * @param assignmentId Assignment ID
      * @param assignmentName Assignment name
      * @param serverLastModified Last-Modified header from server
+     * @param serverETag ETag header from server
      * @param downloadedPath Path where submissions were extracted
      */
     public void updateDownload(String assignmentId, String assignmentName,
-                               String serverLastModified, String downloadedPath) {
+                               String serverLastModified, String serverETag, String downloadedPath) {
         AssignmentCacheEntry entry = data.assignments.computeIfAbsent(
                 assignmentId, k -> new AssignmentCacheEntry());
 
         entry.assignmentName = assignmentName;
         entry.lastModified = serverLastModified;
+        entry.etag = serverETag;
         entry.lastDownloaded = Instant.now().toString();
         entry.downloadedPath = downloadedPath;
 
-        LOGGER.debug("Updated cache for assignment {}: Last-Modified={}", assignmentId, serverLastModified);
+        LOGGER.debug("Updated cache for assignment {}: Last-Modified={}, ETag={}", assignmentId, serverLastModified, serverETag);
     }
 
     /**
@@ -207,6 +197,7 @@ public class SubmissionCache {
     static class AssignmentCacheEntry {
         public String assignmentName;
         public String lastModified;      // Last-Modified header from server
+        public String etag;              // ETag header from server
         public String lastDownloaded;    // ISO-8601 timestamp when we downloaded
         public String downloadedPath;    // Where submissions were extracted
     }
@@ -0,0 +1,297 @@
+package com.mobilemakers.grader;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent index of submission file fingerprints and a content store for merged submission text.
+ *
+ * Each Swift file and ZIP is recorded as (path, size, mtime) → SHA-256. On later runs a file whose size and
+ * mtime still match is recognized from the directory walk alone, without reading it. A submission's source
+ * hash combines the hashes of all its files and decides whether it changed since it was graded. The merged
+ * text is kept gzipped in the content store under the source hash combined with the merge settings, so an
+ * unchanged submission is served from one small file instead of being re-read and re-merged.
+ *
+ * Index structure:
+ * {
+ *   "files": {
+ *     "/abs/path/submissions/Functions/s486002/ContentView.swift": {
+ *       "size": 1834,
+ *       "modified": 1729435873000,
+ *       "sha256": "9f86d08..."
+ *     },
+ *     "/abs/path/submissions/.downloads/Functions_42.zip!/Functions/Doe, Jane - s486002/Revision 2 - On time/ContentView.swift": {
+ *       "size": 1834,
+ *       "modified": 1729435873000,
+ *       "sha256": "9f86d08..."
+ *     }
+ *   },
+ *   "merged": {
+ *     "3c1e9a...": "2025-10-20T14:30:00Z"
+ *   },
+ *   "index_version": "1.0",
+ *   "last_updated": "2025-10-20T14:30:00Z"
+ * }
+ */
+public class SubmissionIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionIndex.class);
+    private static final String INDEX_FILE = "submission-index.json";
+    private static final String STORE_DIRECTORY = "content-store";
+    private static final String INDEX_VERSION = "1.0";
+    private static final Duration STORE_RETENTION = Duration.ofDays(30);
+    private static final String ARCHIVE_ENTRY_SEPARATOR = "!";
+
+    private final ObjectMapper mapper;
+    private final String indexFilePath;
+    private final Path storeDirectory;
+    private final AtomicInteger unchangedFiles = new AtomicInteger();
+    private final AtomicInteger hashedFiles = new AtomicInteger();
+    private final AtomicInteger storeHits = new AtomicInteger();
+    private IndexData data;
+
+    public SubmissionIndex(String resultsDirectory) {
+        this.mapper = new ObjectMapper();
+        this.mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.indexFilePath = resultsDirectory + File.separator + INDEX_FILE;
+        this.storeDirectory = Path.of(resultsDirectory, STORE_DIRECTORY);
+
+        load();
+    }
+
+    /**
+     * Load index from disk. Creates a new index if the file doesn't exist.
+     */
+    private void load() {
+        File indexFile = new File(indexFilePath);
+
+        if (indexFile.exists()) {
+            try {
+                data = mapper.readValue(indexFile, IndexData.class);
+                LOGGER.info("✓ Loaded submission index: {} files tracked", data.files.size());
+            } catch (IOException e) {
+                LOGGER.warn("⚠ Failed to load submission index, starting fresh: {}", e.getMessage());
+                data = new IndexData();
+            }
+        } else {
+            LOGGER.info("ℹ No existing submission index found, creating new index");
+            data = new IndexData();
+        }
+    }
+
+    /**
+     * Save index to disk. Drops records for files that no longer exist and store entries unused
+     * for longer than the retention period.
+     */
+    public synchronized void save() {
+        data.last_updated = Instant.now().toString();
+        data.files.keySet().removeIf(key -> !Files.exists(Path.of(indexedFile(key))));
+        pruneContentStore();
+
+        try {
+            File indexFile = new File(indexFilePath);
+            indexFile.getParentFile().mkdirs(); // Ensure directory exists
+            mapper.writeValue(indexFile, data);
+            LOGGER.info("✓ Saved submission index to {}", indexFilePath);
+        } catch (IOException e) {
+            LOGGER.error("✗ Failed to save submission index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Source hash of the submission described by a manifest, from the student's files alone. Files whose
+     * size and mtime match the index are not read; only new or changed files are hashed.
+     *
+     * Only the latest revision folder is hashed, with paths relative to it, so a class archive graded in
+     * place and the same archive extracted to one folder per student give the same hash.
+     *
+     * @param manifest Student manifest
+     * @return Hex SHA-256 over every file's path and hash
+     */
+    public String sourceHash(SubmissionManifest manifest) throws IOException {
+        SubmissionManifest.Candidate revision = manifest.latestRevision();
+        Path base = revision != null ? revision.path() : manifest.studentDir();
+        List<SubmissionManifest.FileEntry> entries = revision != null ? manifest.filesUnder(revision) : manifest.files();
+
+        MessageDigest digest = sha256();
+        for (SubmissionManifest.FileEntry entry : entries) {
+            Path file = manifest.studentDir().resolve(entry.relativePath());
+            String line = "F " + base.relativize(file).toString().replace('\\', '/') + '\0' + fileHash(file, entry) + '\n';
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Content-store key for a submission merged with given settings.
+     *
+     * @param sourceHash Hash from {@link #sourceHash}
+     * @param variant Identifies how the merged text is produced, so different merge settings never share an entry
+     */
+    public String storeKey(String sourceHash, String variant) {
+        MessageDigest digest = sha256();
+        digest.update((variant + '\n' + sourceHash).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Merged text previously stored under a content-store key, or null if it is not in the store.
+     */
+    public String loadMerged(String storeKey) {
+        Path stored = storeDirectory.resolve(storeKey + ".gz");
+        if (!Files.exists(stored)) {
+            return null;
+        }
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(stored))) {
+            String merged = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            data.merged.put(storeKey, Instant.now().toString());
+            storeHits.incrementAndGet();
+            return merged;
+        } catch (IOException e) {
+            LOGGER.warn("⚠ Ignoring unreadable content store entry {}: {}", stored.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores merged text under its content-store key. Written to a temp file and moved into place, so
+     * a concurrent reader never sees a partial entry.
+     */
+    public void storeMerged(String storeKey, String merged) {
+        try {
+            Files.createDirectories(storeDirectory);
+            Path temp = Files.createTempFile(storeDirectory, storeKey, ".tmp");
+            try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                output.write(merged.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.move(temp, storeDirectory.resolve(storeKey + ".gz"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            data.merged.put(storeKey, Instant.now().toString());
+        } catch (IOException e) {
+            LOGGER.warn("⚠ Failed to store merged submission {}: {}", storeKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Get summary statistics for this run.
+     */
+    public String getSummary() {
+        return String.format("Submission index: %d file(s) unchanged, %d hashed, %d submission(s) served from content store",
+                unchangedFiles.get(), hashedFiles.get(), storeHits.get());
+    }
+
+    /**
+     * Index key of a file: its absolute path, or for an entry of a class archive opened with
+     * {@link SubmissionArchive} the archive's path, "!" and the entry path. Null for other file systems,
+     * whose files are hashed but not indexed.
+     */
+    private static String indexKey(Path file) {
+        if (file.getFileSystem() == FileSystems.getDefault()) {
+            return file.toAbsolutePath().normalize().toString();
+        }
+        Path archive = SubmissionArchive.archiveOf(file);
+        return archive != null ? archive + ARCHIVE_ENTRY_SEPARATOR + file.toAbsolutePath().normalize() : null;
+    }
+
+    /**
+     * The file on disk an index key depends on: the file itself, or the class archive holding the entry.
+     */
+    private static String indexedFile(String key) {
+        int separator = key.indexOf(ARCHIVE_ENTRY_SEPARATOR + "/");
+        return separator < 0 ? key : key.substring(0, separator);
+    }
+
+    private String fileHash(Path file, SubmissionManifest.FileEntry entry) throws IOException {
+        String key = indexKey(file);
+        long modified = entry.lastModified().toMillis();
+
+        FileRecord existing = key != null ? data.files.get(key) : null;
+        if (existing != null && existing.size == entry.size() && existing.modified == modified && existing.sha256 != null) {
+            unchangedFiles.incrementAndGet();
+            return existing.sha256;
+        }
+
+        MessageDigest digest = sha256();
+        try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        FileRecord record = new FileRecord();
+        record.size = entry.size();
+        record.modified = modified;
+        record.sha256 = HexFormat.of().formatHex(digest.digest());
+        if (key != null) {
+            data.files.put(key, record);
+        }
+        hashedFiles.incrementAndGet();
+        return record.sha256;
+    }
+
+    private void pruneContentStore() {
+        Instant cutoff = Instant.now().minus(STORE_RETENTION);
+        data.merged.entrySet().removeIf(entry -> {
+            boolean expired;
+            try {
+                expired = Instant.parse(entry.getValue()).isBefore(cutoff);
+            } catch (RuntimeException e) {
+                expired = true;
+            }
+            if (expired) {
+                try {
+                    Files.deleteIfExists(storeDirectory.resolve(entry.getKey() + ".gz"));
+                } catch (IOException e) {
+                    LOGGER.debug("Could not delete content store entry {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+            return expired;
+        });
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    // Inner classes for JSON structure
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class IndexData {
+        public ConcurrentHashMap<String, FileRecord> files = new ConcurrentHashMap<>();
+        public ConcurrentHashMap<String, String> merged = new ConcurrentHashMap<>();
+        public String index_version = INDEX_VERSION;
+        public String last_updated = Instant.now().toString();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class FileRecord {
+        public long size;
+        public long modified;
+        public String sha256;
+    }
+}
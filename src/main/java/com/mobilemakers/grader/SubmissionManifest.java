@@ -0,0 +1,306 @@
+package com.mobilemakers.grader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable snapshot of one student's submission directory, built from a single file-tree walk.
+ *
+ * Records the top-level submission candidates (revision folders and ZIPs) with their timestamps and every
+ * Swift file and nested ZIP below them with size and modification time. Revision lookup, candidate
+ * ordering and merging all query the manifest instead of listing and stat-ing the directory again.
+ *
+ * Directories that never hold graded code (__MACOSX, DerivedData, build output, Pods, test targets) are not
+ * walked, and Swift files that an Xcode project or Swift package leaves out of its app target are dropped
+ * (see {@link ProjectSources}).
+ */
+public final class SubmissionManifest {
+
+    private static final Pattern REVISION_PATTERN = Pattern.compile("Revision\\s+(\\d+)\\s+-\\s+(On time|Late)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * A top-level folder or ZIP that may hold a submission.
+     *
+     * @param path Absolute path of the folder or ZIP
+     * @param zip True for a ZIP file
+     * @param lastModified Modification time, used to pick the newest submission
+     * @param revision Revision number parsed from a "Revision X - On time/Late" folder name, or 0
+     */
+    public record Candidate(Path path, boolean zip, FileTime lastModified, int revision) {
+    }
+
+    /**
+     * A Swift file or ZIP found anywhere below the student directory.
+     *
+     * @param relativePath Path relative to the student directory
+     * @param size File size in bytes
+     * @param lastModified Modification time
+     * @param zip True for a nested ZIP, false for a Swift file
+     */
+    public record FileEntry(Path relativePath, long size, FileTime lastModified, boolean zip) {
+    }
+
+    private final Path studentDir;
+    private final List<Candidate> candidates;
+    private final List<FileEntry> files;
+    private final int excludedFiles;
+
+    private SubmissionManifest(Path studentDir, List<Candidate> candidates, List<FileEntry> files, int excludedFiles) {
+        this.studentDir = studentDir;
+        this.candidates = List.copyOf(candidates);
+        this.files = List.copyOf(files);
+        this.excludedFiles = excludedFiles;
+    }
+
+    /**
+     * Walks a student directory once, reading each entry's attributes as it is visited.
+     */
+    public static SubmissionManifest scan(Path studentDir) throws IOException {
+        List<Candidate> candidates = new ArrayList<>();
+        List<FileEntry> files = new ArrayList<>();
+        List<ProjectSources.ProjectFile> projectFiles = new ArrayList<>();
+
+        Files.walkFileTree(studentDir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(studentDir) && ProjectSources.isSkippedDirectory(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (studentDir.equals(dir.getParent())) {
+                    String name = dir.getFileName().toString();
+                    candidates.add(new Candidate(dir, false, attrs.lastModifiedTime(), parseRevisionNumber(name)));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!attrs.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String name = file.getFileName().toString();
+                if (isProjectFile(file)) {
+                    Path relative = studentDir.relativize(file);
+                    projectFiles.add(new ProjectSources.ProjectFile(slashed(relative),
+                            new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+                            attrs.lastModifiedTime().toMillis(),
+                            relative.getNameCount() > 1 ? relative.getName(0).toString() : ""));
+                }
+                boolean zip = name.toLowerCase().endsWith(".zip");
+                if (zip && studentDir.equals(file.getParent())) {
+                    candidates.add(new Candidate(file, true, attrs.lastModifiedTime(), 0));
+                }
+                if (zip || name.endsWith(".swift")) {
+                    files.add(new FileEntry(studentDir.relativize(file), attrs.size(), attrs.lastModifiedTime(), zip));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        ProjectSources sources = ProjectSources.from(projectFiles);
+        int before = files.size();
+        files.removeIf(entry -> !entry.zip() && !sources.includes(slashed(entry.relativePath())));
+        int excluded = before - files.size();
+
+        // Highest revision first, then newest; modification times alone are unreliable (a zip file system
+        // synthesizes folder times), and the sort is stable so remaining ties keep directory listing order
+        candidates.sort(Comparator.comparingInt(Candidate::revision)
+                .thenComparing(Candidate::lastModified)
+                .reversed());
+        // Same order as merging folder by folder with each listing sorted by name
+        files.sort((a, b) -> comparePathNames(a.relativePath(), b.relativePath()));
+        return new SubmissionManifest(studentDir, candidates, files, excluded);
+    }
+
+    private static boolean isProjectFile(Path file) {
+        String name = file.getFileName().toString();
+        if (name.equals("Package.swift")) {
+            return true;
+        }
+        Path parent = file.getParent();
+        return name.equals("project.pbxproj") && parent != null && parent.getFileName().toString().endsWith(".xcodeproj");
+    }
+
+    private static String slashed(Path relativePath) {
+        return relativePath.toString().replace('\\', '/');
+    }
+
+    public Path studentDir() {
+        return studentDir;
+    }
+
+    /**
+     * Swift files left out because their project does not compile them into the app target.
+     */
+    public int excludedFiles() {
+        return excludedFiles;
+    }
+
+    /**
+     * Top-level folders and ZIPs, highest revision first, then newest first.
+     */
+    public List<Candidate> candidates() {
+        return candidates;
+    }
+
+    /**
+     * All Swift files and nested ZIPs, in merge order.
+     */
+    public List<FileEntry> files() {
+        return files;
+    }
+
+    /**
+     * Swift files and nested ZIPs inside a top-level folder, in merge order.
+     */
+    public List<FileEntry> filesUnder(Candidate candidate) {
+        Path top = studentDir.relativize(candidate.path());
+        List<FileEntry> result = new ArrayList<>();
+        for (FileEntry entry : files) {
+            if (entry.relativePath().getNameCount() > 1 && entry.relativePath().getName(0).equals(top)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The highest-numbered revision folder holding Swift files or ZIPs, or null for a direct submission.
+     */
+    public Candidate latestRevision() {
+        for (Candidate candidate : candidates) {
+            if (candidate.revision() > 0 && !filesUnder(candidate).isEmpty()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Highest revision folder number, or 1 if there are no revision folders (direct submission).
+     */
+    public int highestRevision() {
+        int maxRevision = 0;
+        for (Candidate candidate : candidates) {
+            maxRevision = Math.max(maxRevision, candidate.revision());
+        }
+        return maxRevision > 0 ? maxRevision : 1;
+    }
+
+    /**
+     * The folder for a given revision number, or null if it does not exist.
+     */
+    public Candidate revision(int revisionNumber) {
+        for (Candidate candidate : candidates) {
+            if (!candidate.zip() && candidate.revision() == revisionNumber) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Total size of all Swift files and nested ZIPs in bytes.
+     */
+    public long totalBytes() {
+        long total = 0;
+        for (FileEntry entry : files) {
+            total += entry.size();
+        }
+        return total;
+    }
+
+    /**
+     * Cheap change probe built from file names and sizes only; no file content is read.
+     *
+     * Modification times are left out on purpose: re-extracting an unchanged Schoology download rewrites
+     * every file with a new mtime, and that must not trigger a re-grade. An edit that keeps every file
+     * the same size is not detected, so this complements the revision number rather than replacing it.
+     *
+     * @return Hex digest of the sorted (relative path, size) list
+     */
+    public String fingerprint() {
+        MessageDigest digest = sha256();
+        for (FileEntry entry : files) {
+            String line = entry.relativePath().toString().replace('\\', '/') + '\0' + entry.size() + '\n';
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * Parse revision number from folder name.
+     * Examples:
+     *   "Revision 1 - On time" -> 1
+     *   "Revision 2 - Late" -> 2
+     *   "SomeOtherFolder" -> 0
+     *
+     * @param folderName The folder name to parse
+     * @return Revision number, or 0 if not a revision folder
+     */
+    static int parseRevisionNumber(String folderName) {
+        Matcher matcher = REVISION_PATTERN.matcher(folderName);
+        if (matcher.matches()) {
+            try {
+                return Integer.parseInt(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Extracts school_uid from Schoology folder name format.
+     * Format: "LastName, FirstName - school_uid"
+     * Example: "Castro, Marianna - s486002" -> "s486002"
+     *
+     * @return The school_uid, or null if the name is not a student folder
+     */
+    static String schoolUid(String folderName) {
+        int lastDashIndex = folderName.lastIndexOf(" - ");
+        if (lastDashIndex == -1) {
+            return null;
+        }
+
+        String uid = folderName.substring(lastDashIndex + 3).trim();
+
+        // Validate it looks like a school UID (starts with 's' followed by digits)
+        return uid.matches("s\\d+") ? uid : null;
+    }
+
+    private static int comparePathNames(Path a, Path b) {
+        int common = Math.min(a.getNameCount(), b.getNameCount());
+        for (int i = 0; i < common; i++) {
+            int result = a.getName(i).compareTo(b.getName(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.getNameCount(), b.getNameCount());
+    }
+}
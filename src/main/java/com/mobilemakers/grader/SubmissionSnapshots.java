@@ -0,0 +1,182 @@
+package com.mobilemakers.grader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Staged, atomically published copies of an assignment's submissions folder.
+ *
+ * Each download is extracted into a new snapshot under submissions/.snapshots/{Assignment}/ and only made
+ * visible once complete, by pointing the submissions/{Assignment} symlink at it with an atomic rename. A
+ * reader therefore sees either the old snapshot or the new one, never a half-written student folder. The
+ * previous snapshot is kept for grading that is still reading it; older ones are deleted on publish.
+ *
+ * Where symbolic links are not available (Windows without developer mode) the snapshot folder is renamed
+ * into place instead, which is brief but not atomic. A plain folder left by an earlier version or a manual
+ * upload is moved into the snapshots folder the first time a snapshot is published.
+ */
+final class SubmissionSnapshots {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubmissionSnapshots.class);
+
+    private static final String SNAPSHOTS_DIR = ".snapshots";
+    private static final DateTimeFormatter SNAPSHOT_NAME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+    // Snapshots kept besides the published one, for readers that resolved the link before the swap
+    private static final int KEEP_PREVIOUS = 1;
+
+    private final Path submissionsRoot;
+
+    SubmissionSnapshots(Path submissionsRoot) {
+        this.submissionsRoot = submissionsRoot;
+    }
+
+    /**
+     * The stable path graders read, e.g. submissions/Buttons.
+     */
+    Path publishedPath(String name) {
+        return submissionsRoot.resolve(name);
+    }
+
+    /**
+     * The folder currently published under a name, or null if there is none yet.
+     */
+    Path current(String name) throws IOException {
+        Path published = publishedPath(name);
+        return Files.exists(published) ? published.toRealPath() : null;
+    }
+
+    /**
+     * Creates an empty snapshot folder to extract into.
+     */
+    Path stage(String name) throws IOException {
+        Path snapshots = Files.createDirectories(submissionsRoot.resolve(SNAPSHOTS_DIR).resolve(name));
+        String base = SNAPSHOT_NAME.format(Instant.now());
+        Path staged = snapshots.resolve(base);
+        for (int attempt = 1; Files.exists(staged); attempt++) {
+            staged = snapshots.resolve(base + "-" + attempt);
+        }
+        return Files.createDirectory(staged);
+    }
+
+    /**
+     * Makes a staged snapshot the published one and deletes snapshots older than the previous one.
+     *
+     * @return The published path
+     */
+    Path publish(String name, Path staged) throws IOException {
+        Path published = publishedPath(name);
+        if (Files.isDirectory(published, LinkOption.NOFOLLOW_LINKS)) {
+            moveAside(name, published);
+        }
+
+        Path tempLink = submissionsRoot.resolve("." + name + "-" + staged.getFileName() + ".link");
+        try {
+            Files.deleteIfExists(tempLink);
+            Files.createSymbolicLink(tempLink, submissionsRoot.toAbsolutePath().relativize(staged.toAbsolutePath()));
+            Files.move(tempLink, published, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            LOGGER.debug("Symbolic links unavailable ({}), renaming snapshot into place", e.getMessage());
+            Files.deleteIfExists(tempLink);
+            Files.deleteIfExists(published);
+            Files.move(staged, published, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        LOGGER.info("✓ Published snapshot {} as {}", staged.getFileName(), published);
+        collectGarbage(name);
+        return published;
+    }
+
+    /**
+     * Deletes a snapshot that failed to stage.
+     */
+    void discard(Path staged) {
+        try {
+            deleteRecursively(staged);
+        } catch (IOException e) {
+            LOGGER.warn("⚠ Failed to delete staged snapshot {}: {}", staged, e.getMessage());
+        }
+    }
+
+    /**
+     * Recreates a folder from an earlier snapshot in a staged one. Files are hard-linked, which costs no
+     * copying; that is safe because snapshot files are only ever replaced, never written in place. Files
+     * are copied where hard links are not supported.
+     */
+    static void carryOver(Path from, Path to) throws IOException {
+        try (Stream<Path> paths = Files.walk(from)) {
+            for (Path source : paths.toList()) {
+                Path target = to.resolve(from.relativize(source).toString());
+                if (Files.isDirectory(source)) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                try {
+                    Files.createLink(target, source);
+                } catch (UnsupportedOperationException | FileSystemException e) {
+                    Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recursively deletes a directory and all its contents; missing paths are ignored.
+     */
+    static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path entry : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(entry);
+            }
+        }
+    }
+
+    private void moveAside(String name, Path folder) throws IOException {
+        Path snapshots = Files.createDirectories(submissionsRoot.resolve(SNAPSHOTS_DIR).resolve(name));
+        String base = SNAPSHOT_NAME.format(Files.getLastModifiedTime(folder).toInstant());
+        Path target = snapshots.resolve(base);
+        for (int attempt = 1; Files.exists(target); attempt++) {
+            target = snapshots.resolve(base + "-" + attempt);
+        }
+        Files.move(folder, target);
+        LOGGER.info("Moved {} into snapshot {}", folder, target.getFileName());
+    }
+
+    private void collectGarbage(String name) throws IOException {
+        Path snapshots = submissionsRoot.resolve(SNAPSHOTS_DIR).resolve(name);
+        if (!Files.isDirectory(snapshots)) {
+            return;
+        }
+        Path current = current(name);
+        List<Path> older = new ArrayList<>();
+        try (Stream<Path> folders = Files.list(snapshots)) {
+            for (Path folder : folders.filter(Files::isDirectory).toList()) {
+                if (current == null || !Files.isSameFile(folder, current)) {
+                    older.add(folder);
+                }
+            }
+        }
+        older.sort(Comparator.comparing((Path folder) -> folder.getFileName().toString()).reversed());
+        for (Path folder : older.subList(Math.min(KEEP_PREVIOUS, older.size()), older.size())) {
+            LOGGER.debug("Deleting old snapshot {}", folder);
+            deleteRecursively(folder);
+        }
+    }
+}
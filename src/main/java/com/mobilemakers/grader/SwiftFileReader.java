@@ -1,25 +1,30 @@
 package com.mobilemakers.grader;
 
+import com.mobilemakers.grader.prompts.PromptConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 /**
@@ -28,92 +33,401 @@ import java.util.zip.ZipInputStream;
 public class SwiftFileReader {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SwiftFileReader.class);
-    private static final Pattern REVISION_PATTERN = Pattern.compile("Revision\\s+(\\d+)\\s+-\\s+(On time|Late)", Pattern.CASE_INSENSITIVE);
 
-    public Map<String, String> readStudentSubmissions(Path submissionsRoot) throws IOException {
+    // Nested ZIPs up to this size are read in memory; larger ones are spilled to a temp file
+    private static final long NESTED_ZIP_MEMORY_BYTES = 8L * 1024 * 1024;
+    private static final int MAX_NESTED_ZIP_DEPTH = 3;
+
+    // Pre-sizing allowance for each "// File:" header and separator, and an upper bound on pre-allocation
+    private static final int FILE_HEADER_ALLOWANCE = 128;
+    private static final long MAX_PRESIZE_CHARS = 8L * 1024 * 1024;
+
+    // Bump when the merged text format changes so stored merges are not reused
+    private static final String MERGE_FORMAT = "merge-v2";
+
+    private final SubmissionIndex submissionIndex;
+    private final SourceOptions options;
+    private final StarterBaseline starter;
+    private final ExtractionLimits limits;
+
+    public SwiftFileReader() {
+        this(Config.getBoolean("SUBMISSION_INDEX", true) ? new SubmissionIndex("results") : null,
+                SourceOptions.fromEnvironment());
+    }
+
+    public SwiftFileReader(SubmissionIndex submissionIndex) {
+        this(submissionIndex, SourceOptions.VERBATIM);
+    }
+
+    /**
+     * @param submissionIndex Persistent file fingerprint index and content store, or null to always read from disk
+     * @param options How Swift files are prepared for the prompt
+     */
+    public SwiftFileReader(SubmissionIndex submissionIndex, SourceOptions options) {
+        this(submissionIndex, options, ExtractionLimits.fromEnvironment());
+    }
+
+    SwiftFileReader(SubmissionIndex submissionIndex, SourceOptions options, ExtractionLimits limits) {
+        this.limits = limits;
+        this.submissionIndex = submissionIndex;
+        this.options = options == null ? SourceOptions.VERBATIM : options;
+        this.starter = loadStarter(this.options);
+    }
+
+    private static StarterBaseline loadStarter(SourceOptions options) {
+        if (options.starterDirectory() == null) {
+            return null;
+        }
+        try {
+            StarterBaseline baseline = StarterBaseline.load(options.starterDirectory(), options.minify());
+            LOGGER.info("Loaded starter baseline from {} ({} Swift file(s))", options.starterDirectory(), baseline.size());
+            return baseline;
+        } catch (IOException ex) {
+            LOGGER.warn("⚠ Could not read starter project {}, sending submissions whole: {}",
+                    options.starterDirectory(), ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A reader for one assignment's source options that shares this reader's index and run limits.
+     */
+    public SwiftFileReader withOptions(SourceOptions assignmentOptions) {
+        if (options.equals(assignmentOptions)) {
+            return this;
+        }
+        return new SwiftFileReader(submissionIndex, assignmentOptions, limits);
+    }
+
+    /**
+     * Hash of a submission's files from the fingerprint index, or null when the index is disabled.
+     * Only files whose size or mtime changed since the last run are read. Source options play no part,
+     * so changing how code is prepared for the prompt never makes a graded submission look new.
+     */
+    public String sourceHash(SubmissionManifest manifest) throws IOException {
+        if (submissionIndex == null) {
+            return null;
+        }
+        return submissionIndex.sourceHash(manifest);
+    }
+
+    /**
+     * Merged code for a submission, served from the content store when the same content was merged
+     * with the same options before. Falls back to {@link #readLatestSubmission(SubmissionManifest)} and
+     * stores the result.
+     *
+     * @param manifest Student manifest
+     * @param sourceHash Hash from {@link #sourceHash}, or null to skip the content store
+     */
+    public String readLatestSubmission(SubmissionManifest manifest, String sourceHash) throws IOException {
+        if (submissionIndex == null || sourceHash == null) {
+            return readLatestSubmission(manifest);
+        }
+        String variant = MERGE_FORMAT + "/" + options.variant() + (starter != null ? "/" + starter.fingerprint() : "");
+        String storeKey = submissionIndex.storeKey(sourceHash, variant);
+        String stored = submissionIndex.loadMerged(storeKey);
+        if (stored != null) {
+            return stored;
+        }
+        String merged = readLatestSubmission(manifest);
+        // A truncated merge depends on this run's limits, not only on the content, so it is not stored
+        if (!merged.contains(PromptConstants.TRUNCATED_SUBMISSION)) {
+            submissionIndex.storeMerged(storeKey, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Persists the fingerprint index after a run and logs how much of it was reused and how much
+     * archive content was inflated.
+     */
+    public void saveIndex() {
+        if (submissionIndex != null) {
+            submissionIndex.save();
+            LOGGER.info(submissionIndex.getSummary());
+        }
+        LOGGER.info(limits.getSummary());
+    }
+
+    /**
+     * Lists student submissions without reading any code. Each submission's code is loaded on demand
+     * with {@link StudentSubmission#loadCode()}, so callers can start grading immediately and keep only
+     * the submissions they are currently working on in memory.
+     *
+     * Inside a {@link SubmissionArchive} the folders are named "LastName, FirstName - school_uid"; those
+     * submissions are keyed by the school UID alone, the same key the extracted folders use.
+     *
+     * @param submissionsRoot Directory containing one folder per student
+     * @return Submissions in directory listing order
+     */
+    public Stream<StudentSubmission> streamStudentSubmissions(Path submissionsRoot) throws IOException {
+        return listStudentDirectories(submissionsRoot).stream()
+                .map(studentDir -> new StudentSubmission(studentKey(studentDir), studentDir, this));
+    }
+
+    private static String studentKey(Path studentDir) {
+        String folderName = studentDir.getFileName().toString();
+        if (SubmissionArchive.archiveOf(studentDir) == null) {
+            return folderName;
+        }
+        String schoolUid = SubmissionManifest.schoolUid(folderName);
+        return schoolUid != null ? schoolUid : folderName;
+    }
+
+    private List<Path> listStudentDirectories(Path submissionsRoot) throws IOException {
         if (!Files.exists(submissionsRoot) || !Files.isDirectory(submissionsRoot)) {
             throw new IOException("Submissions path does not exist or is not a directory: " + submissionsRoot);
         }
-
-        Map<String, String> submissions = new LinkedHashMap<>();
         try (Stream<Path> directories = Files.list(submissionsRoot).filter(Files::isDirectory)) {
-            for (Path studentDir : directories.collect(Collectors.toList())) {
-                String studentKey = studentDir.getFileName().toString();
-                String mergedCode = readLatestSubmission(studentDir);
-                if (mergedCode.isBlank()) {
-                    LOGGER.warn("No Swift files found for student directory: {}", studentKey);
-                }
-                submissions.put(studentKey, mergedCode);
-            }
+            return directories.collect(Collectors.toList());
         }
-        return submissions;
     }
 
-    private String readLatestSubmission(Path studentDir) throws IOException {
-        List<Path> candidates = listSubmissionCandidates(studentDir);
-        for (Path candidate : candidates) {
-            String merged = mergeCandidateContent(candidate);
+    /**
+     * Merges the Swift files of the newest non-empty submission in a student directory.
+     *
+     * @param studentDir The student's submission directory
+     * @return Merged Swift code, or an empty string if no Swift files were found
+     */
+    public String readLatestSubmission(Path studentDir) throws IOException {
+        return readLatestSubmission(SubmissionManifest.scan(studentDir));
+    }
+
+    /**
+     * Same as {@link #readLatestSubmission(Path)}, using an existing manifest instead of walking the directory again.
+     */
+    public String readLatestSubmission(SubmissionManifest manifest) throws IOException {
+        if (manifest.excludedFiles() > 0) {
+            LOGGER.debug("Skipping {} Swift file(s) outside the app target in {}",
+                    manifest.excludedFiles(), manifest.studentDir().getFileName());
+        }
+        for (SubmissionManifest.Candidate candidate : manifest.candidates()) {
+            String merged = mergeCandidateContent(manifest, candidate);
             if (!merged.isBlank()) {
                 return merged;
             }
         }
 
         // Fallback to pre-existing behavior in case no explicit revision folders exist.
-        return mergeDirectorySwiftFiles(studentDir, studentDir);
+        return mergeEntries(manifest, manifest.files(), manifest.studentDir());
+    }
+
+    private String mergeCandidateContent(SubmissionManifest manifest, SubmissionManifest.Candidate candidate) throws IOException {
+        if (candidate.zip()) {
+            MergeBuffer merge = new MergeBuffer(manifest.studentDir(), 0, limits.newBudget());
+            mergeZipSwiftFiles(candidate.path(), merge);
+            return finish(merge);
+        }
+        return mergeEntries(manifest, manifest.filesUnder(candidate), candidate.path());
+    }
+
+    private String mergeEntries(SubmissionManifest manifest,
+                                List<SubmissionManifest.FileEntry> entries,
+                                Path baseForLabel) throws IOException {
+        // Sized from the manifest so the builder is allocated once for plain-folder submissions
+        long estimate = 0;
+        for (SubmissionManifest.FileEntry entry : entries) {
+            if (!entry.zip()) {
+                estimate += entry.size() + FILE_HEADER_ALLOWANCE;
+            }
+        }
+        MergeBuffer merge = new MergeBuffer(manifest.studentDir(), (int) Math.min(estimate, MAX_PRESIZE_CHARS), limits.newBudget());
+
+        for (SubmissionManifest.FileEntry entry : entries) {
+            Path file = manifest.studentDir().resolve(entry.relativePath());
+            if (entry.zip()) {
+                mergeZipSwiftFiles(file, merge);
+            } else {
+                appendSource(merge, baseForLabel.relativize(file).toString(),
+                        out -> SourceDecoder.current().appendFile(file, out));
+            }
+        }
+        return finish(merge);
+    }
+
+    /**
+     * Merges the Swift files in a ZIP using its central directory, so assets, videos and build products
+     * are skipped without being inflated. Every entry that is read counts against the submission's
+     * {@link ExtractionLimits.Budget}.
+     */
+    private void mergeZipSwiftFiles(Path zipPath, MergeBuffer merge) throws IOException {
+        String archiveName = zipPath.getFileName().toString();
+        if (zipPath.getFileSystem() != FileSystems.getDefault()) {
+            // A ZIP inside a class archive opened as a zip file system; ZipFile needs a real file
+            try (InputStream input = Files.newInputStream(zipPath)) {
+                mergeNestedZip(archiveName, input, Files.size(zipPath), merge, 0);
+            }
+            return;
+        }
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(zipPath.toFile());
+        } catch (ZipException ex) {
+            // Truncated uploads may lack a central directory but still have readable local entries
+            LOGGER.debug("No readable central directory in {}, streaming instead: {}", archiveName, ex.getMessage());
+            try (InputStream fileStream = Files.newInputStream(zipPath)) {
+                mergeZipStream(fileStream, archiveName, merge);
+            }
+            return;
+        }
+
+        try (zipFile) {
+            mergeZipFile(zipFile, archiveName, merge, 0);
+        }
     }
 
-    private List<Path> listSubmissionCandidates(Path studentDir) throws IOException {
-        List<Path> candidates = new ArrayList<>();
-        try (Stream<Path> stream = Files.list(studentDir)) {
-            candidates = stream
-                    .filter(path -> Files.isDirectory(path) || isZip(path))
-                    .sorted(Comparator.comparing(this::lastModified).reversed())
-                    .collect(Collectors.toList());
+    private void mergeZipFile(ZipFile zipFile, String archiveName, MergeBuffer merge, int depth) throws IOException {
+        ProjectSources sources = zipProjectSources(zipFile, merge);
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!merge.budget.countEntry(archiveName)) {
+                break;
+            }
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName();
+            if (!sources.includes(name.replace('\\', '/'))) {
+                continue;
+            }
+            if (name.endsWith(".swift")) {
+                if (!merge.budget.admits(name, entry.getSize())) {
+                    continue;
+                }
+                if (entry.getSize() > 0) {
+                    merge.builder.ensureCapacity(merge.builder.length() + (int) Math.min(entry.getSize(), MAX_PRESIZE_CHARS) + FILE_HEADER_ALLOWANCE);
+                }
+                try (InputStream input = zipFile.getInputStream(entry)) {
+                    appendZipEntry(merge, extractEntryLabel(name), merge.budget.limit(input, name));
+                }
+            } else if (depth < MAX_NESTED_ZIP_DEPTH && isNestedZip(name) && merge.budget.admits(name, entry.getSize())) {
+                try (InputStream input = zipFile.getInputStream(entry)) {
+                    mergeNestedZip(name, merge.budget.cap(input, name), entry.getSize(), merge, depth + 1);
+                }
+            }
         }
-        return candidates;
     }
 
-    private String mergeCandidateContent(Path candidate) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        if (Files.isDirectory(candidate)) {
-            mergeDirectorySwiftFiles(candidate, candidate, builder);
-        } else if (isZip(candidate)) {
-            mergeZipSwiftFiles(candidate, builder);
+    /**
+     * Reads the Xcode projects and Swift packages in a ZIP so only their app sources are merged.
+     */
+    private ProjectSources zipProjectSources(ZipFile zipFile, MergeBuffer merge) throws IOException {
+        List<ProjectSources.ProjectFile> projectFiles = new ArrayList<>();
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName().replace('\\', '/');
+            boolean project = ProjectSources.xcodeProjectRoot(name) != null
+                    || name.equals("Package.swift") || name.endsWith("/Package.swift");
+            if (entry.isDirectory() || !project || ProjectSources.isSkippedPath(name)
+                    || !merge.budget.admits(name, entry.getSize())) {
+                continue;
+            }
+            try (InputStream input = merge.budget.limit(zipFile.getInputStream(entry), name)) {
+                projectFiles.add(new ProjectSources.ProjectFile(name,
+                        new String(input.readAllBytes(), StandardCharsets.UTF_8),
+                        entry.getTime(), ""));
+            } catch (ExtractionLimits.LimitExceededException ex) {
+                merge.budget.truncate(ex.getMessage());
+            }
         }
-        return builder.toString().trim();
+        return projectFiles.isEmpty() ? ProjectSources.NONE : ProjectSources.from(projectFiles);
     }
 
-    private String mergeDirectorySwiftFiles(Path root, Path baseForLabel) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        mergeDirectorySwiftFiles(root, baseForLabel, builder);
-        return builder.toString().trim();
+    /**
+     * Merges a ZIP found inside another ZIP. Small ones are read into memory; larger ones are spilled to a
+     * temporary file and opened with ZipFile. At most {@link #NESTED_ZIP_MEMORY_BYTES} are buffered on the
+     * heap whatever size the parent archive declares; an archive that turns out larger is spilled.
+     *
+     * @param input Stream over the nested archive's bytes, capped at the per-entry limit
+     * @param declaredSize Size recorded in the parent archive, or -1 if unknown
+     */
+    private void mergeNestedZip(String name, InputStream input, long declaredSize, MergeBuffer merge, int depth) throws IOException {
+        try {
+            byte[] head = new byte[0];
+            if (declaredSize >= 0 && declaredSize <= NESTED_ZIP_MEMORY_BYTES) {
+                head = input.readNBytes((int) NESTED_ZIP_MEMORY_BYTES + 1);
+                if (head.length <= NESTED_ZIP_MEMORY_BYTES) {
+                    mergeInMemoryZip(name, head, merge, depth);
+                    return;
+                }
+                LOGGER.debug("Nested ZIP {} is larger than its declared {} bytes, spilling to disk", name, declaredSize);
+            }
+
+            Path spill = Files.createTempFile("nested-", ".zip");
+            try {
+                try (OutputStream out = Files.newOutputStream(spill)) {
+                    out.write(head);
+                    head = null; // release the buffer before the rest is copied
+                    input.transferTo(out);
+                }
+                try (ZipFile nested = new ZipFile(spill.toFile())) {
+                    mergeZipFile(nested, name, merge, depth);
+                } catch (ZipException ex) {
+                    LOGGER.debug("Streaming nested ZIP {}: {}", name, ex.getMessage());
+                    try (InputStream spilled = Files.newInputStream(spill)) {
+                        mergeZipStream(spilled, name, merge);
+                    }
+                }
+            } finally {
+                Files.deleteIfExists(spill);
+            }
+        } catch (ExtractionLimits.LimitExceededException ex) {
+            merge.budget.truncate(ex.getMessage());
+        }
     }
 
-    private void mergeDirectorySwiftFiles(Path directory, Path baseForLabel, StringBuilder builder) throws IOException {
-        try (Stream<Path> stream = Files.list(directory)) {
-            for (Path child : stream.sorted().collect(Collectors.toList())) {
-                if (Files.isDirectory(child)) {
-                    mergeDirectorySwiftFiles(child, baseForLabel, builder);
-                } else if (isSwift(child)) {
-                    appendFile(builder, baseForLabel.relativize(child).toString(), Files.readString(child, StandardCharsets.UTF_8));
-                } else if (isZip(child)) {
-                    mergeZipSwiftFiles(child, builder);
+    private void mergeInMemoryZip(String name, byte[] bytes, MergeBuffer merge, int depth) throws IOException {
+        ZipCentralDirectory archive;
+        try {
+            archive = ZipCentralDirectory.open(bytes);
+        } catch (IOException ex) {
+            LOGGER.debug("Streaming nested ZIP {}: {}", name, ex.getMessage());
+            mergeZipStream(new ByteArrayInputStream(bytes), name, merge);
+            return;
+        }
+
+        for (ZipCentralDirectory.Entry entry : archive.entries()) {
+            if (!merge.budget.countEntry(name)) {
+                break;
+            }
+            if (entry.isDirectory() || ProjectSources.isSkippedPath(entry.name().replace('\\', '/'))) {
+                continue;
+            }
+            if (entry.name().endsWith(".swift")) {
+                if (merge.budget.admits(entry.name(), entry.size())) {
+                    try (InputStream input = merge.budget.limit(archive.openStream(entry), entry.name())) {
+                        appendZipEntry(merge, extractEntryLabel(entry.name()), input);
+                    }
+                }
+            } else if (depth < MAX_NESTED_ZIP_DEPTH && isNestedZip(entry.name()) && merge.budget.admits(entry.name(), entry.size())) {
+                try (InputStream input = merge.budget.cap(archive.openStream(entry), entry.name())) {
+                    mergeNestedZip(entry.name(), input, entry.size(), merge, depth + 1);
                 }
             }
         }
     }
 
-    private void mergeZipSwiftFiles(Path zipPath, StringBuilder builder) throws IOException {
-        try (InputStream fileStream = Files.newInputStream(zipPath); ZipInputStream zipInput = new ZipInputStream(fileStream)) {
+    /**
+     * Sequential fallback for archives without a usable central directory. Nested ZIPs are not opened.
+     */
+    private void mergeZipStream(InputStream input, String archiveName, MergeBuffer merge) throws IOException {
+        try (ZipInputStream zipInput = new ZipInputStream(input)) {
             ZipEntry entry;
             while ((entry = zipInput.getNextEntry()) != null) {
                 try {
-                    if (entry.isDirectory() || !entry.getName().endsWith(".swift")) {
+                    if (!merge.budget.countEntry(archiveName)) {
+                        break;
+                    }
+                    String name = entry.getName();
+                    if (entry.isDirectory() || !name.endsWith(".swift")
+                            || ProjectSources.isSkippedPath(name.replace('\\', '/'))
+                            || !merge.budget.admits(name, entry.getSize())) {
                         continue;
                     }
-                    String label = extractEntryLabel(entry.getName());
-                    String content = readZipEntry(zipInput);
-                    appendFile(builder, label, content);
+                    // Not closed here: closing the limited wrapper would close the whole archive stream
+                    appendZipEntry(merge, extractEntryLabel(name), merge.budget.limit(zipInput, name));
                 } finally {
                     zipInput.closeEntry();
                 }
@@ -121,94 +435,250 @@ public class SwiftFileReader {
         }
     }
 
-    private String readZipEntry(InputStream zipInput) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        byte[] buffer = new byte[4096];
-        int read;
-        while ((read = zipInput.read(buffer)) != -1) {
-            outputStream.write(buffer, 0, read);
-        }
-        return outputStream.toString(StandardCharsets.UTF_8);
+    private boolean isNestedZip(String entryName) {
+        return entryName.toLowerCase().endsWith(".zip") && !ProjectSources.isSkippedPath(entryName.replace('\\', '/'));
     }
 
-    private void appendFile(StringBuilder builder, String label, String content) {
-        builder.append("// File: ").append(label).append(System.lineSeparator());
-        builder.append(content);
-        builder.append(System.lineSeparator()).append(System.lineSeparator());
+    private void appendZipEntry(MergeBuffer merge, String label, InputStream input) throws IOException {
+        appendSource(merge, label, out -> SourceDecoder.current().appendStream(input, out));
     }
 
-    private String extractEntryLabel(String entryName) {
-        String normalized = entryName.replace('\\', '/');
-        int lastSlash = normalized.lastIndexOf('/');
-        if (lastSlash >= 0 && lastSlash < normalized.length() - 1) {
-            return normalized.substring(lastSlash + 1);
+    /**
+     * Appends one Swift file with its "// File:" header. With no minification or starter baseline the
+     * source is decoded straight into the merged builder; otherwise the file is decoded into a scratch
+     * buffer first so it can be dropped, minified or reduced to hunks against the starter code.
+     */
+    private void appendSource(MergeBuffer merge, String label, SourceWriter source) throws IOException {
+        int start = merge.builder.length();
+        try {
+            writeSource(merge, label, source);
+        } catch (ExtractionLimits.LimitExceededException ex) {
+            // Drop the partly written file rather than send half of it
+            merge.builder.setLength(start);
+            merge.budget.truncate(ex.getMessage());
         }
-        return normalized;
     }
 
-    private boolean isSwift(Path path) {
-        return Files.isRegularFile(path) && path.getFileName().toString().endsWith(".swift");
+    private void writeSource(MergeBuffer merge, String label, SourceWriter source) throws IOException {
+        int start = merge.builder.length();
+        if (!options.minify() && starter == null) {
+            appendFileHeader(merge.builder, label);
+            int contentStart = merge.builder.length();
+            source.writeTo(merge.builder);
+            appendFileFooter(merge.builder);
+            merge.sections.add(new Section(label, start, contentStart, merge.builder.length()));
+            return;
+        }
+
+        if (options.minify() && SwiftMinifier.isExcludedFile(label)) {
+            merge.skippedFiles++;
+            return;
+        }
+        StringBuilder scratch = merge.scratch;
+        scratch.setLength(0);
+        source.writeTo(scratch);
+        merge.sourceChars += scratch.length();
+
+        CharSequence prepared = scratch;
+        if (options.minify()) {
+            String banner = SwiftMinifier.generatorBanner(scratch);
+            if (banner != null) {
+                LOGGER.info("⊘ Left out generated file {} ({})", label, banner);
+                merge.skippedFiles++;
+                return;
+            }
+            prepared = SwiftMinifier.minify(scratch);
+        }
+        if (starter != null) {
+            StarterBaseline.Comparison comparison = starter.compare(label, prepared);
+            if (comparison.kind() == StarterBaseline.Kind.UNCHANGED) {
+                merge.unchangedStarterFiles.add(label);
+                return;
+            }
+            if (comparison.kind() == StarterBaseline.Kind.MODIFIED) {
+                prepared = comparison.hunks();
+                label = label + PromptConstants.STARTER_DIFF_LABEL;
+            }
+        }
+
+        merge.keptChars += prepared.length();
+        appendFileHeader(merge.builder, label);
+        int contentStart = merge.builder.length();
+        merge.builder.append(prepared);
+        appendFileFooter(merge.builder);
+        merge.sections.add(new Section(label, start, contentStart, merge.builder.length()));
+    }
+
+    private void appendFileHeader(StringBuilder builder, String label) {
+        builder.append("// File: ").append(label).append(System.lineSeparator());
     }
 
-    private boolean isZip(Path path) {
-        return Files.isRegularFile(path) && path.getFileName().toString().toLowerCase().endsWith(".zip");
+    private void appendFileFooter(StringBuilder builder) {
+        builder.append(System.lineSeparator()).append(System.lineSeparator());
     }
 
-    private FileTime lastModified(Path path) {
-        try {
-            return Files.getLastModifiedTime(path);
-        } catch (IOException ex) {
-            LOGGER.warn("Failed to read last modified time for {}", path, ex);
-            return FileTime.fromMillis(0);
+    /**
+     * Turns a merge into the submission text. An oversized merge is cut down to the size budget, then notes
+     * for archive entries left out and for files unchanged from the starter project are appended, trailing
+     * whitespace is removed and the characters saved by minifying or starter diffing are logged.
+     */
+    private String finish(MergeBuffer merge) {
+        StringBuilder builder = merge.builder;
+        if (options.maxChars() > 0 && builder.length() > options.maxChars() && !merge.sections.isEmpty()) {
+            applyBudget(merge);
+        }
+        if (merge.budget.isTruncated()) {
+            LOGGER.warn("⚠ Truncated {}: {}", merge.studentDir.getFileName(), merge.budget.describeTruncations());
+            builder.append(PromptConstants.TRUNCATED_SUBMISSION).append(merge.budget.describeTruncations())
+                    .append(System.lineSeparator()).append(System.lineSeparator());
+        }
+        if (!merge.unchangedStarterFiles.isEmpty()) {
+            builder.append(PromptConstants.UNCHANGED_STARTER_FILES)
+                    .append(String.join(", ", merge.unchangedStarterFiles));
+        }
+        int end = builder.length();
+        while (end > 0 && builder.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        builder.setLength(end);
+
+        if ((options.minify() || starter != null) && merge.sourceChars > 0) {
+            long saved = merge.sourceChars - merge.keptChars;
+            LOGGER.info("Reduced {}: {} → {} chars, ~{} tokens saved ({}%), {} file(s) skipped, {} unchanged from starter",
+                    merge.studentDir.getFileName(), merge.sourceChars, merge.keptChars,
+                    SwiftMinifier.estimateTokens(saved), saved * 100 / merge.sourceChars,
+                    merge.skippedFiles, merge.unchangedStarterFiles.size());
         }
+        return builder.toString();
     }
 
     /**
-     * Find the highest revision number in a student's directory.
-     * Looks for folders named "Revision X - On time" or "Revision X - Late"
-     *
-     * @param studentDir The student's submission directory
-     * @return Highest revision number found, or 1 if no revision folders exist
+     * Keeps an oversized submission within the size budget. Files are ranked by relevance to the rubric
+     * and the top files are kept in full, in their original order; the rest are listed with their line
+     * count and declarations. The most relevant file is always sent: if it does not fit on its own it is
+     * cut at a line boundary and takes the whole budget, rather than giving way to smaller, less relevant files.
      */
-    public int findHighestRevision(Path studentDir) throws IOException {
-        int maxRevision = 0;
+    private void applyBudget(MergeBuffer merge) {
+        StringBuilder builder = merge.builder;
+        List<Section> sections = merge.sections;
+        int budget = options.maxChars();
 
-        try (Stream<Path> stream = Files.list(studentDir)) {
-            List<Path> paths = stream.filter(Files::isDirectory).collect(Collectors.toList());
+        Map<Section, Integer> scores = new LinkedHashMap<>();
+        Map<Section, String> summaries = new LinkedHashMap<>();
+        int summaryChars = 0;
+        for (Section section : sections) {
+            CharSequence content = builder.subSequence(section.contentStart(), section.end());
+            scores.put(section, RelevanceRanker.score(section.label(), content, options.relevanceKeywords()));
+            String summary = RelevanceRanker.summarize(section.label(), content);
+            summaries.put(section, summary);
+            summaryChars += summary.length() + FILE_HEADER_ALLOWANCE / 4;
+        }
 
-            for (Path path : paths) {
-                String folderName = path.getFileName().toString();
-                int revision = parseRevisionNumber(folderName);
-                if (revision > maxRevision) {
-                    maxRevision = revision;
+        // Stable sort, so equally relevant files keep their merge order
+        List<Section> ranked = new ArrayList<>(sections);
+        ranked.sort(Comparator.comparingInt((Section section) -> scores.get(section)).reversed());
+
+        int remaining = budget - Math.min(summaryChars, budget / 10);
+        Set<Section> included = new HashSet<>();
+        Section truncated = null;
+        if (ranked.get(0).end() - ranked.get(0).start() > remaining) {
+            truncated = ranked.get(0);
+        } else {
+            for (Section section : ranked) {
+                if (section.end() - section.start() <= remaining) {
+                    included.add(section);
+                    remaining -= section.end() - section.start();
                 }
             }
         }
 
-        // If no revision folders found, assume revision 1 (direct submission)
-        return maxRevision > 0 ? maxRevision : 1;
+        StringBuilder trimmed = new StringBuilder(budget + FILE_HEADER_ALLOWANCE);
+        if (truncated != null) {
+            int cut = Math.max(truncated.contentStart(), truncated.start() + remaining);
+            int lineEnd = builder.lastIndexOf("\n", cut);
+            if (lineEnd > truncated.contentStart()) {
+                cut = lineEnd;
+            }
+            trimmed.append(builder, truncated.start(), cut).append(System.lineSeparator())
+                    .append(PromptConstants.TRUNCATED_FILE).append(System.lineSeparator()).append(System.lineSeparator());
+        }
+        for (Section section : sections) {
+            if (included.contains(section)) {
+                trimmed.append(builder, section.start(), section.end());
+            }
+        }
+
+        List<String> omitted = new ArrayList<>();
+        for (Section section : sections) {
+            if (!included.contains(section) && section != truncated) {
+                omitted.add(summaries.get(section));
+            }
+        }
+        if (!omitted.isEmpty()) {
+            trimmed.append(PromptConstants.OMITTED_FILES).append(System.lineSeparator());
+            for (String summary : omitted) {
+                trimmed.append("//   ").append(summary).append(System.lineSeparator());
+            }
+            trimmed.append(System.lineSeparator());
+        }
+
+        LOGGER.info("Trimmed {} from {} to {} chars: {} of {} file(s) in full, {} summarized{}",
+                merge.studentDir.getFileName(), builder.length(), trimmed.length(), included.size(), sections.size(),
+                omitted.size(), truncated != null ? ", 1 truncated" : "");
+        builder.setLength(0);
+        builder.append(trimmed);
     }
 
     /**
-     * Parse revision number from folder name.
-     * Examples:
-     *   "Revision 1 - On time" -> 1
-     *   "Revision 2 - Late" -> 2
-     *   "SomeOtherFolder" -> 0
-     *
-     * @param folderName The folder name to parse
-     * @return Revision number, or 0 if not a revision folder
+     * One file in the merged text: header start, content start and end after the footer.
      */
-    private int parseRevisionNumber(String folderName) {
-        Matcher matcher = REVISION_PATTERN.matcher(folderName);
-        if (matcher.matches()) {
-            try {
-                return Integer.parseInt(matcher.group(1));
-            } catch (NumberFormatException e) {
-                LOGGER.warn("Failed to parse revision number from: {}", folderName);
-            }
+    private record Section(String label, int start, int contentStart, int end) {
+    }
+
+    /**
+     * Merged text for one submission plus what minification and starter diffing removed from it.
+     */
+    private static final class MergeBuffer {
+        private final Path studentDir;
+        private final StringBuilder builder;
+        private final StringBuilder scratch = new StringBuilder();
+        private final ExtractionLimits.Budget budget;
+        private final List<String> unchangedStarterFiles = new ArrayList<>();
+        private final List<Section> sections = new ArrayList<>();
+        private long sourceChars;
+        private long keptChars;
+        private int skippedFiles;
+
+        private MergeBuffer(Path studentDir, int initialCapacity, ExtractionLimits.Budget budget) {
+            this.studentDir = studentDir;
+            this.budget = budget;
+            this.builder = new StringBuilder(initialCapacity);
         }
-        return 0;
+    }
+
+    @FunctionalInterface
+    private interface SourceWriter {
+        void writeTo(StringBuilder out) throws IOException;
+    }
+
+    private String extractEntryLabel(String entryName) {
+        String normalized = entryName.replace('\\', '/');
+        int lastSlash = normalized.lastIndexOf('/');
+        if (lastSlash >= 0 && lastSlash < normalized.length() - 1) {
+            return normalized.substring(lastSlash + 1);
+        }
+        return normalized;
+    }
+
+    /**
+     * Find the highest revision number in a student's directory.
+     * Looks for folders named "Revision X - On time" or "Revision X - Late"
+     *
+     * @param studentDir The student's submission directory
+     * @return Highest revision number found, or 1 if no revision folders exist
+     */
+    public int findHighestRevision(Path studentDir) throws IOException {
+        return SubmissionManifest.scan(studentDir).highestRevision();
     }
 
     /**
@@ -219,20 +689,16 @@ public class SwiftFileReader {
      * @return Merged Swift code, or empty string if revision not found
      */
     public String readSpecificRevision(Path studentDir, int revisionNumber) throws IOException {
-        // Look for folder matching "Revision {revisionNumber} - ..."
-        try (Stream<Path> stream = Files.list(studentDir)) {
-            List<Path> paths = stream.filter(Files::isDirectory).collect(Collectors.toList());
-
-            for (Path path : paths) {
-                String folderName = path.getFileName().toString();
-                if (parseRevisionNumber(folderName) == revisionNumber) {
-                    LOGGER.debug("Reading revision {} from: {}", revisionNumber, folderName);
-                    return mergeDirectorySwiftFiles(path, path);
-                }
-            }
-        }
+        return readSpecificRevision(SubmissionManifest.scan(studentDir), revisionNumber);
+    }
 
-        LOGGER.warn("Revision {} not found in {}", revisionNumber, studentDir);
-        return "";
+    public String readSpecificRevision(SubmissionManifest manifest, int revisionNumber) throws IOException {
+        SubmissionManifest.Candidate revision = manifest.revision(revisionNumber);
+        if (revision == null) {
+            LOGGER.warn("Revision {} not found in {}", revisionNumber, manifest.studentDir());
+            return "";
+        }
+        LOGGER.debug("Reading revision {} from: {}", revisionNumber, revision.path().getFileName());
+        return mergeEntries(manifest, manifest.filesUnder(revision), revision.path());
     }
 }
@@ -0,0 +1,412 @@
+package com.mobilemakers.grader;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Shrinks Swift source before it is put into a prompt, without changing what the code does.
+ *
+ * A small lexer walks the source so that string literals are never touched: regular, multiline
+ * ("""), raw (#"..."#) and interpolated strings are copied verbatim. Outside literals it removes line
+ * comments, block comments (including nested ones), SwiftUI preview code (#Preview macros and
+ * PreviewProvider structs), trailing whitespace, blank lines and repeated spaces inside a line.
+ * Leading indentation is kept so the model still sees the structure.
+ *
+ * Regex literals (/.../) are not recognized; a "//" inside one would be treated as a comment.
+ */
+final class SwiftMinifier {
+
+    private static final List<String> GENERATOR_BANNERS = List.of(
+            "generated using swiftgen",
+            "generated using sourcery",
+            "this is a generated file, do not edit",
+            "generated by ");
+
+    private SwiftMinifier() {
+    }
+
+    /**
+     * Files the rubric never grades: package manifests and Xcode/SwiftGen generated sources.
+     */
+    static boolean isExcludedFile(String fileName) {
+        String name = fileName.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1);
+        return name.equals("Package.swift")
+                || name.equals("GeneratedAssetSymbols.swift")
+                || name.endsWith(".generated.swift");
+    }
+
+    /**
+     * The banner line of a file written by a known code generator (SwiftGen, Sourcery, R.swift or any
+     * "// Generated by" tool), or null. Only the first line of the header comment is checked, after blank
+     * "//" lines and swiftlint directives; wording further down may be a student's own note.
+     */
+    static String generatorBanner(CharSequence source) {
+        int start = 0;
+        while (start < source.length()) {
+            int end = start;
+            while (end < source.length() && source.charAt(end) != '\n') {
+                end++;
+            }
+            String line = source.subSequence(start, end).toString().strip();
+            start = end + 1;
+            if (!line.startsWith("//")) {
+                return null;
+            }
+            String text = line.substring(2).strip().toLowerCase(Locale.ROOT);
+            if (text.isEmpty() || text.startsWith("swiftlint:")) {
+                continue;
+            }
+            for (String banner : GENERATOR_BANNERS) {
+                if (text.startsWith(banner)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Rough token estimate (about four characters per token) used for savings reporting.
+     */
+    static long estimateTokens(long chars) {
+        return (chars + 3) / 4;
+    }
+
+    static String minify(CharSequence source) {
+        Lexer lexer = new Lexer(source);
+        lexer.code(0, false);
+        StringBuilder withoutPreviews = removePreviews(lexer.out, lexer.literal);
+        return collapseWhitespace(withoutPreviews, lexer.literal);
+    }
+
+    /**
+     * Copies source to {@code out} without comments and marks every character that belongs to a
+     * string literal in {@code literal}.
+     */
+    private static final class Lexer {
+        private final CharSequence src;
+        private final int length;
+        private final StringBuilder out;
+        private final BitSet literal = new BitSet();
+
+        private Lexer(CharSequence src) {
+            this.src = src;
+            this.length = src.length();
+            this.out = new StringBuilder(length);
+        }
+
+        /**
+         * Copies code until the end of input, or until the ')' that closes a string interpolation.
+         *
+         * @return Index of the closing ')' when {@code interpolation} is true, otherwise the input length
+         */
+        private int code(int start, boolean interpolation) {
+            int i = start;
+            int parenDepth = 0;
+            while (i < length) {
+                char c = src.charAt(i);
+                char next = i + 1 < length ? src.charAt(i + 1) : '\0';
+
+                if (c == '/' && next == '/') {
+                    while (i < length && src.charAt(i) != '\n') {
+                        i++;
+                    }
+                    continue;
+                }
+                if (c == '/' && next == '*') {
+                    i = skipBlockComment(i);
+                    out.append(' ');
+                    continue;
+                }
+                if (c == '"' || c == '#') {
+                    int hashes = 0;
+                    while (i + hashes < length && src.charAt(i + hashes) == '#') {
+                        hashes++;
+                    }
+                    if (i + hashes < length && src.charAt(i + hashes) == '"') {
+                        i = string(i, hashes);
+                        continue;
+                    }
+                }
+                if (interpolation) {
+                    if (c == '(') {
+                        parenDepth++;
+                    } else if (c == ')') {
+                        if (parenDepth == 0) {
+                            return i;
+                        }
+                        parenDepth--;
+                    }
+                }
+                out.append(c);
+                i++;
+            }
+            return length;
+        }
+
+        private int skipBlockComment(int start) {
+            int depth = 0;
+            int i = start;
+            while (i < length) {
+                if (startsWith(i, "/*")) {
+                    depth++;
+                    i += 2;
+                } else if (startsWith(i, "*/")) {
+                    depth--;
+                    i += 2;
+                    if (depth == 0) {
+                        return i;
+                    }
+                } else {
+                    i++;
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Copies a string literal starting at its opening delimiter (including leading '#'s).
+         *
+         * @return Index just after the closing delimiter
+         */
+        private int string(int start, int hashes) {
+            int quoteStart = start + hashes;
+            boolean multiline = startsWith(quoteStart, "\"\"\"");
+            String quotes = multiline ? "\"\"\"" : "\"";
+            String closing = quotes + "#".repeat(hashes);
+            String interpolationStart = "\\" + "#".repeat(hashes) + "(";
+
+            int i = quoteStart + quotes.length();
+            appendLiteral(start, i);
+            while (i < length) {
+                if (startsWith(i, closing)) {
+                    appendLiteral(i, i + closing.length());
+                    return i + closing.length();
+                }
+                if (startsWith(i, interpolationStart)) {
+                    int codeStart = i + interpolationStart.length();
+                    appendLiteral(i, codeStart);
+                    int close = code(codeStart, true);
+                    if (close >= length) {
+                        return length;
+                    }
+                    appendLiteral(close, close + 1);
+                    i = close + 1;
+                    continue;
+                }
+                char c = src.charAt(i);
+                if (c == '\\' && hashes == 0 && i + 1 < length) {
+                    appendLiteral(i, i + 2);
+                    i += 2;
+                    continue;
+                }
+                if (c == '\n' && !multiline) {
+                    // Unterminated single-line string; resume lexing as code
+                    return i;
+                }
+                appendLiteral(i, i + 1);
+                i++;
+            }
+            return length;
+        }
+
+        private void appendLiteral(int from, int to) {
+            int position = out.length();
+            out.append(src, from, to);
+            literal.set(position, out.length());
+        }
+
+        private boolean startsWith(int index, String token) {
+            if (index + token.length() > length) {
+                return false;
+            }
+            for (int k = 0; k < token.length(); k++) {
+                if (src.charAt(index + k) != token.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Removes #Preview { ... } macros and "struct X: PreviewProvider { ... }" declarations.
+     */
+    private static StringBuilder removePreviews(StringBuilder code, BitSet literal) {
+        List<int[]> removed = new ArrayList<>();
+        int searchFrom = 0;
+        while (true) {
+            int macro = indexOfCode(code, literal, "#Preview", searchFrom);
+            int provider = indexOfCode(code, literal, "PreviewProvider", searchFrom);
+            if (macro < 0 && provider < 0) {
+                break;
+            }
+
+            int start;
+            int bodyFrom;
+            if (macro >= 0 && (provider < 0 || macro < provider)) {
+                start = macro;
+                bodyFrom = macro + "#Preview".length();
+            } else {
+                start = declarationStart(code, literal, provider);
+                bodyFrom = provider + "PreviewProvider".length();
+                if (start < 0) {
+                    searchFrom = bodyFrom;
+                    continue;
+                }
+            }
+
+            int open = nextCodeChar(code, literal, '{', bodyFrom);
+            int end = open < 0 ? -1 : matchingBrace(code, literal, open);
+            if (end < 0) {
+                searchFrom = bodyFrom;
+                continue;
+            }
+            removed.add(new int[]{start, end + 1});
+            searchFrom = end + 1;
+        }
+
+        if (removed.isEmpty()) {
+            return code;
+        }
+        StringBuilder result = new StringBuilder(code.length());
+        BitSet shifted = new BitSet();
+        int copied = 0;
+        for (int[] range : removed) {
+            copyRange(code, literal, copied, range[0], result, shifted);
+            copied = range[1];
+        }
+        copyRange(code, literal, copied, code.length(), result, shifted);
+        literal.clear();
+        literal.or(shifted);
+        return result;
+    }
+
+    private static void copyRange(StringBuilder from, BitSet literal, int start, int end, StringBuilder to, BitSet toLiteral) {
+        for (int i = start; i < end; i++) {
+            if (literal.get(i)) {
+                toLiteral.set(to.length());
+            }
+            to.append(from.charAt(i));
+        }
+    }
+
+    /**
+     * Collapses whitespace outside string literals: trims line ends, drops blank lines and
+     * reduces runs of spaces or tabs after the indentation to a single space.
+     */
+    private static String collapseWhitespace(StringBuilder code, BitSet literal) {
+        StringBuilder result = new StringBuilder(code.length());
+        int lineStart = 0;
+        int length = code.length();
+        while (lineStart <= length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && code.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            boolean newlineInLiteral = lineEnd < length && literal.get(lineEnd);
+
+            int before = result.length();
+            boolean indentation = true;
+            boolean pendingSpace = false;
+            for (int i = lineStart; i < lineEnd; i++) {
+                char c = code.charAt(i);
+                boolean isLiteral = literal.get(i);
+                if (!isLiteral && (c == ' ' || c == '\t' || c == '\r')) {
+                    if (indentation && c != '\r') {
+                        result.append(c);
+                    } else {
+                        pendingSpace = true;
+                    }
+                    continue;
+                }
+                if (pendingSpace) {
+                    result.append(' ');
+                    pendingSpace = false;
+                }
+                indentation = false;
+                result.append(c);
+            }
+
+            if (newlineInLiteral) {
+                // Inside a multiline string: keep the line and its line break as written
+                if (pendingSpace) {
+                    result.append(' ');
+                }
+                result.append('\n');
+            } else if (indentation) {
+                // Only whitespace on this line
+                result.setLength(before);
+            } else if (lineEnd < length) {
+                result.append('\n');
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        int end = result.length();
+        while (end > 0 && result.charAt(end - 1) == '\n') {
+            end--;
+        }
+        result.setLength(end);
+        return result.toString();
+    }
+
+    private static int indexOfCode(StringBuilder code, BitSet literal, String token, int from) {
+        int index = code.indexOf(token, from);
+        while (index >= 0) {
+            boolean boundaryBefore = index == 0 || !Character.isJavaIdentifierPart(code.charAt(index - 1));
+            int after = index + token.length();
+            boolean boundaryAfter = after >= code.length() || !Character.isJavaIdentifierPart(code.charAt(after));
+            if (!literal.get(index) && boundaryBefore && boundaryAfter) {
+                return index;
+            }
+            index = code.indexOf(token, index + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the "struct" keyword that starts the declaration conforming to PreviewProvider.
+     */
+    private static int declarationStart(StringBuilder code, BitSet literal, int providerIndex) {
+        int lineStart = code.lastIndexOf("\n", providerIndex) + 1;
+        int structIndex = code.lastIndexOf("struct", providerIndex);
+        if (structIndex < lineStart || literal.get(structIndex)) {
+            return -1;
+        }
+        // Include access modifiers and attributes written before "struct" on the same line
+        return lineStart;
+    }
+
+    private static int nextCodeChar(StringBuilder code, BitSet literal, char target, int from) {
+        for (int i = from; i < code.length(); i++) {
+            if (code.charAt(i) == target && !literal.get(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int matchingBrace(StringBuilder code, BitSet literal, int open) {
+        int depth = 0;
+        for (int i = open; i < code.length(); i++) {
+            if (literal.get(i)) {
+                continue;
+            }
+            char c = code.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
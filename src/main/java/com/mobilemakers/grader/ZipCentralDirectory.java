@@ -0,0 +1,157 @@
+package com.mobilemakers.grader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Random-access reader for a ZIP archive held in memory, used for ZIPs nested inside other ZIPs.
+ *
+ * java.util.zip.ZipFile needs a file on disk, and ZipInputStream has to inflate every entry in order.
+ * This reads the central directory at the end of the archive, so only the entries that are asked for
+ * get inflated, and {@link #openStream} inflates an entry incrementally instead of into one array.
+ * ZIP64 archives, encrypted entries and unusual compression methods throw an IOException; callers fall
+ * back to ZipInputStream for those.
+ */
+final class ZipCentralDirectory {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int END_RECORD_SIZE = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    /**
+     * One entry as recorded in the central directory.
+     */
+    record Entry(String name, int method, long compressedSize, long size, long localHeaderOffset, boolean encrypted) {
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    private final ByteBuffer data;
+    private final List<Entry> entries;
+
+    private ZipCentralDirectory(ByteBuffer data, List<Entry> entries) {
+        this.data = data;
+        this.entries = List.copyOf(entries);
+    }
+
+    static ZipCentralDirectory open(byte[] bytes) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEndRecord(data);
+        int entryCount = Short.toUnsignedInt(data.getShort(end + 10));
+        long directoryOffset = Integer.toUnsignedLong(data.getInt(end + 16));
+        if (entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+            throw new IOException("ZIP64 archives are not supported");
+        }
+
+        List<Entry> entries = new ArrayList<>(entryCount);
+        int position = checkedOffset(directoryOffset, data);
+        for (int i = 0; i < entryCount; i++) {
+            if (position + 46 > data.limit() || data.getInt(position) != CENTRAL_FILE_HEADER) {
+                throw new IOException("Corrupt ZIP central directory at entry " + i);
+            }
+            int flags = Short.toUnsignedInt(data.getShort(position + 8));
+            int method = Short.toUnsignedInt(data.getShort(position + 10));
+            long compressedSize = Integer.toUnsignedLong(data.getInt(position + 20));
+            long size = Integer.toUnsignedLong(data.getInt(position + 24));
+            int nameLength = Short.toUnsignedInt(data.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(data.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(data.getShort(position + 32));
+            long localHeaderOffset = Integer.toUnsignedLong(data.getInt(position + 42));
+            if (position + 46 + nameLength > data.limit()) {
+                throw new IOException("Corrupt ZIP central directory at entry " + i);
+            }
+
+            byte[] nameBytes = new byte[nameLength];
+            data.get(position + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            entries.add(new Entry(name, method, compressedSize, size, localHeaderOffset, (flags & 1) != 0));
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return new ZipCentralDirectory(data, entries);
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * Streams a single entry. Nothing is allocated from the declared size, so callers can bound how
+     * much is actually inflated.
+     */
+    InputStream openStream(Entry entry) throws IOException {
+        int start = dataStart(entry);
+        InputStream raw = new ByteArrayInputStream(data.array(), start, (int) entry.compressedSize());
+        return switch (entry.method()) {
+            case 0 -> raw;
+            case 8 -> inflating(raw);
+            default -> throw new IOException("Unsupported compression method " + entry.method() + " for " + entry.name());
+        };
+    }
+
+    private static InputStream inflating(InputStream raw) {
+        Inflater inflater = new Inflater(true);
+        // Raw deflate may need one byte past the data to signal the end, as ZipFile supplies
+        InputStream padded = new SequenceInputStream(raw, new ByteArrayInputStream(new byte[1]));
+        return new InflaterInputStream(padded, inflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private int dataStart(Entry entry) throws IOException {
+        if (entry.encrypted()) {
+            throw new IOException("Encrypted ZIP entry: " + entry.name());
+        }
+        if (entry.size() > Integer.MAX_VALUE - 8 || entry.compressedSize() > Integer.MAX_VALUE - 8) {
+            throw new IOException("ZIP entry too large: " + entry.name());
+        }
+
+        int header = checkedOffset(entry.localHeaderOffset(), data);
+        if (header + 30 > data.limit() || data.getInt(header) != LOCAL_FILE_HEADER) {
+            throw new IOException("Corrupt local header for ZIP entry: " + entry.name());
+        }
+        int nameLength = Short.toUnsignedInt(data.getShort(header + 26));
+        int extraLength = Short.toUnsignedInt(data.getShort(header + 28));
+        int start = header + 30 + nameLength + extraLength;
+        if (start + entry.compressedSize() > data.limit()) {
+            throw new IOException("Truncated ZIP entry: " + entry.name());
+        }
+        return start;
+    }
+
+    private static int findEndRecord(ByteBuffer data) throws IOException {
+        int lowest = Math.max(0, data.limit() - END_RECORD_SIZE - MAX_COMMENT_LENGTH);
+        for (int position = data.limit() - END_RECORD_SIZE; position >= lowest; position--) {
+            if (data.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        throw new IOException("ZIP end of central directory not found");
+    }
+
+    private static int checkedOffset(long offset, ByteBuffer data) throws IOException {
+        if (offset < 0 || offset >= data.limit()) {
+            throw new IOException("ZIP offset out of range: " + offset);
+        }
+        return (int) offset;
+    }
+}
@@ -49,6 +49,14 @@ public class GradingResult {
         return feedback == null ? new GradingFeedback() : feedback;
     }
 
+    public boolean hasFeedback() {
+        return feedback != null;
+    }
+
+    public void setFeedback(GradingFeedback feedback) {
+        this.feedback = feedback;
+    }
+
     public String compileIssues() {
         return compileIssues == null ? "unknown" : compileIssues;
     }
@@ -59,4 +59,85 @@ public final class PromptConstants {
             4. Be CONSISTENT: if you mark a stretch goal as complete in stretchGoalsCompleted, do NOT mention it as missing in feedback
             5. If any MVP requirement is missing or non-functional, mvpComplete MUST be false
             """;
+
+    /**
+     * Appended after the rubric in two-phase grading mode so the first request only returns the numeric result.
+     * Detailed feedback is requested separately (see {@link #FEEDBACK_ONLY_RESPONSE_FORMAT}) for students who need it.
+     */
+    public static final String SCORE_ONLY_RESPONSE_FORMAT = """
+
+            RESPONSE FORMAT OVERRIDE - SCORE ONLY:
+            Ignore the feedback fields in the JSON format above. Do NOT write strengths, improvements, syntaxErrors or studentSummary.
+            Grade exactly as the rubric describes, then RESPOND WITH ONLY VALID JSON (no extra text before or after):
+            {
+              "score": X.X,
+              "maxScore": 10,
+              "mvpComplete": true/false,
+              "stretchGoalsCompleted": ["stretch1", "stretch2"],
+              "compileIssues": "none/minor/major"
+            }
+            """;
+
+    /**
+     * Appended after the rubric in the second phase of two-phase grading to request feedback for an already-scored submission.
+     * Formatted with the score, max score, MVP status, completed stretch goals and compile issues from the first phase.
+     */
+    public static final String FEEDBACK_ONLY_RESPONSE_FORMAT = """
+
+            RESPONSE FORMAT OVERRIDE - FEEDBACK ONLY:
+            This submission has ALREADY been graded. Do NOT re-grade it. The final result is:
+            - score: %s / %s
+            - mvpComplete: %s
+            - stretchGoalsCompleted: %s
+            - compileIssues: %s
+
+            Write feedback that is CONSISTENT with this result (do not call a completed stretch goal missing, do not suggest a different score).
+            Follow the FEEDBACK STUDENT SUMMARY REQUIREMENTS above, then RESPOND WITH ONLY VALID JSON (no extra text before or after):
+            {
+              "feedback": {
+                "studentSummary": "2-3 sentence summary of performance and next steps",
+                "strengths": ["specific strength 1", "specific strength 2"],
+                "improvements": ["specific improvement 1", "specific improvement 2"],
+                "syntaxErrors": ["syntax error 1 if any", "syntax error 2 if any"]
+              }
+            }
+            """;
+
+    /**
+     * Header suffix for a submitted file sent as hunks against the assignment's starter project.
+     */
+    public static final String STARTER_DIFF_LABEL = " (changes from starter code)";
+
+    /**
+     * Prefix of the line listing submitted files that are identical to the starter project.
+     */
+    public static final String UNCHANGED_STARTER_FILES = "// Unchanged starter files: ";
+
+    /**
+     * Placed before the student's code when starter-code diffing removed or shortened any files.
+     */
+    public static final String STARTER_DIFF_NOTE = """
+            // NOTE TO GRADER: Starter code from the assignment template has been removed.
+            // Files marked "(changes from starter code)" show only the student's edits as hunks:
+            // lines starting with "+" were added by the student, "-" lines were removed from the starter,
+            // and " " lines are unchanged context. Files listed as unchanged starter files exist in the
+            // project exactly as provided and contain no student work.
+
+            """;
+
+    /**
+     * Heading for files left out of an oversized submission, each listed with its line count and declarations.
+     */
+    public static final String OMITTED_FILES =
+            "// Not shown to stay within the size budget (ranked least relevant to the rubric):";
+
+    /**
+     * Marks the end of a file that was cut short because it alone exceeded the size budget.
+     */
+    public static final String TRUNCATED_FILE = "// ... remainder of this file omitted to stay within the size budget";
+
+    /**
+     * Prefix of the note added when archive size limits left part of a submission unread.
+     */
+    public static final String TRUNCATED_SUBMISSION = "// NOTE TO GRADER: Part of this submission could not be read (archive size limits): ";
 }
@@ -0,0 +1,156 @@
+package com.mobilemakers.grader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobilemakers.grader.model.GradingResult;
+import com.mobilemakers.grader.prompts.PromptConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradeProcessorTwoPhaseTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ASSIGNMENT_ID = "8017693698";
+    private static final String SUMMARY = "Clean layout. Add the counter stretch goal next time.";
+
+    @TempDir
+    Path root;
+
+    private Path submissions;
+    private Path cacheDir;
+
+    @BeforeEach
+    void writeSubmission() throws IOException {
+        submissions = Files.createDirectories(root.resolve("submissions"));
+        Path student = Files.createDirectories(submissions.resolve("Doe, Jane - s100"));
+        Files.writeString(student.resolve("App.swift"), "struct App {}", StandardCharsets.UTF_8);
+        cacheDir = root.resolve("cache");
+    }
+
+    @Test
+    void failedFeedbackKeepsTheScoreAndRetriesOnlyTheFeedbackNextRun() throws Exception {
+        ScriptedGrader failing = new ScriptedGrader(true);
+        run(failing, true, true);
+
+        assertEquals(1, failing.scoreCalls.get());
+        assertEquals(1, failing.feedbackCalls.get());
+        assertTrue(latestCsv().contains("Feedback not generated (score-only grading)"));
+        GradingResult owed = new GradingCache(cacheDir.toString()).getPendingFeedback("s100", ASSIGNMENT_ID);
+        assertNotNull(owed, "score is cached with feedback still pending");
+        assertEquals(8.0, owed.score());
+
+        ScriptedGrader working = new ScriptedGrader(false);
+        run(working, true, true);
+
+        assertEquals(0, working.scoreCalls.get(), "the score is not requested again");
+        assertEquals(1, working.feedbackCalls.get());
+        assertTrue(latestCsv().contains(SUMMARY));
+        assertNull(new GradingCache(cacheDir.toString()).getPendingFeedback("s100", ASSIGNMENT_ID));
+    }
+
+    @Test
+    void successfulFeedbackClearsThePendingMarker() throws Exception {
+        ScriptedGrader grader = new ScriptedGrader(false);
+        run(grader, true, true);
+
+        assertEquals(1, grader.scoreCalls.get());
+        assertEquals(1, grader.feedbackCalls.get());
+        assertTrue(latestCsv().contains(SUMMARY));
+        assertNull(new GradingCache(cacheDir.toString()).getPendingFeedback("s100", ASSIGNMENT_ID));
+
+        ScriptedGrader nextRun = new ScriptedGrader(false);
+        run(nextRun, true, true);
+        assertEquals(0, nextRun.scoreCalls.get() + nextRun.feedbackCalls.get());
+    }
+
+    @Test
+    void feedbackIsSkippedWhenNothingIsPostedOrExported() throws Exception {
+        ScriptedGrader grader = new ScriptedGrader(false);
+        run(grader, true, false);
+
+        assertEquals(1, grader.scoreCalls.get());
+        assertEquals(0, grader.feedbackCalls.get());
+        String csv = latestCsv();
+        assertTrue(csv.contains("Feedback not generated (score-only grading)"));
+        assertFalse(csv.contains(SUMMARY));
+        GradingCache cache = new GradingCache(cacheDir.toString());
+        assertEquals(1, cache.getLastGradedRevision("s100", ASSIGNMENT_ID));
+        assertNull(cache.getPendingFeedback("s100", ASSIGNMENT_ID));
+    }
+
+    @Test
+    void singlePhaseGradingSendsOneFullPrompt() throws Exception {
+        ScriptedGrader grader = new ScriptedGrader(false);
+        run(grader, false, true);
+
+        assertEquals(0, grader.scoreCalls.get());
+        assertEquals(1, grader.feedbackCalls.get());
+        assertTrue(latestCsv().contains(SUMMARY));
+    }
+
+    private void run(Grader grader, boolean twoPhase, boolean exportFeedback) throws IOException {
+        GradeProcessor processor = new GradeProcessor(new SwiftFileReader(null, SourceOptions.VERBATIM),
+                new AssignmentPrompt("Rubric\n%s"), grader, ASSIGNMENT_ID, twoPhase, exportFeedback, cacheDir.toString());
+        processor.gradeAll(submissions, root.resolve("out"));
+    }
+
+    private String latestCsv() throws IOException {
+        try (Stream<Path> files = Files.list(root.resolve("out"))) {
+            Path csv = files.filter(file -> file.getFileName().toString().startsWith("grades-"))
+                    .max(Comparator.comparing(file -> file.toFile().lastModified()))
+                    .orElseThrow();
+            return Files.readString(csv, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Answers score-only prompts with a score and every other prompt with a full result including feedback.
+     */
+    private static final class ScriptedGrader implements Grader {
+        private final boolean failFeedback;
+        private final AtomicInteger scoreCalls = new AtomicInteger();
+        private final AtomicInteger feedbackCalls = new AtomicInteger();
+
+        private ScriptedGrader(boolean failFeedback) {
+            this.failFeedback = failFeedback;
+        }
+
+        @Override
+        public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) throws IOException {
+            if (prompt.endsWith(PromptConstants.SCORE_ONLY_RESPONSE_FORMAT)) {
+                scoreCalls.incrementAndGet();
+                return MAPPER.readValue("""
+                        {"score": 8.0, "maxScore": 10, "mvpComplete": true, "stretchGoalsCompleted": ["stretch1"], "compileIssues": "none"}
+                        """, GradingResult.class);
+            }
+            feedbackCalls.incrementAndGet();
+            if (failFeedback) {
+                throw new IOException("model unavailable");
+            }
+            return MAPPER.readValue("""
+                    {"score": 8.0, "maxScore": 10, "mvpComplete": true, "stretchGoalsCompleted": ["stretch1"],
+                     "feedback": {"studentSummary": "%s", "strengths": [], "improvements": [], "syntaxErrors": []},
+                     "compileIssues": "none"}
+                    """.formatted(SUMMARY), GradingResult.class);
+        }
+
+        @Override
+        public String name() {
+            return "scripted";
+        }
+    }
+}
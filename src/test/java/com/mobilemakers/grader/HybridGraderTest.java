@@ -0,0 +1,138 @@
+package com.mobilemakers.grader;
+
+import com.mobilemakers.grader.model.GradingResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HybridGraderTest {
+
+    @Test
+    void prefersLocalModelWhenItHasFreeCapacity() throws Exception {
+        CountingGrader local = new CountingGrader(1, null);
+        CountingOpenAIGrader openAI = new CountingOpenAIGrader(1, null);
+        HybridGrader hybrid = new HybridGrader(local, openAI, 0.0, 1.0, 0.0);
+
+        hybrid.gradeSubmission("student-a", "prompt");
+        hybrid.gradeSubmission("student-b", "prompt");
+
+        assertEquals(2, local.calls.get());
+        assertEquals(0, openAI.calls.get());
+    }
+
+    @Test
+    void overflowsToOpenAIWhileLocalSlotsAreBusy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingGrader local = new CountingGrader(1, release);
+        CountingOpenAIGrader openAI = new CountingOpenAIGrader(1, null);
+        HybridGrader hybrid = new HybridGrader(local, openAI, 0.0, 1.0, 0.0);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<GradingResult> blocked = executor.submit(() -> hybrid.gradeSubmission("student-a", "prompt"));
+            waitForCalls(local, 1);
+
+            hybrid.gradeSubmission("student-b", "prompt");
+            assertEquals(1, openAI.calls.get());
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void skipsOpenAIOnceSpendCapWouldBeExceeded() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingGrader local = new CountingGrader(1, release);
+        CountingOpenAIGrader openAI = new CountingOpenAIGrader(1, null);
+        // Cap below the default per-call estimate, so OpenAI is never eligible
+        HybridGrader hybrid = new HybridGrader(local, openAI, 0.0, 1.0, 0.0001);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<GradingResult> first = executor.submit(() -> hybrid.gradeSubmission("student-a", "prompt"));
+            waitForCalls(local, 1);
+            Future<GradingResult> second = executor.submit(() -> hybrid.gradeSubmission("student-b", "prompt"));
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, local.calls.get());
+            assertEquals(0, openAI.calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitForCalls(CountingGrader grader, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (grader.calls.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class CountingGrader implements Grader {
+        private final int capacity;
+        private final CountDownLatch release;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingGrader(int capacity, CountDownLatch release) {
+            this.capacity = capacity;
+            this.release = release;
+        }
+
+        @Override
+        public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) {
+            calls.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new GradingResult();
+        }
+
+        @Override
+        public String name() {
+            return "local";
+        }
+
+        @Override
+        public int maxConcurrency() {
+            return capacity;
+        }
+    }
+
+    private static final class CountingOpenAIGrader extends OpenAIGrader {
+        private final int capacity;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingOpenAIGrader(int capacity, String apiKey) {
+            super(apiKey, null);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public GradingResult gradeSubmission(String studentKey, String prompt, ReasoningBudget budget) {
+            calls.incrementAndGet();
+            return new GradingResult();
+        }
+
+        @Override
+        public int maxConcurrency() {
+            return capacity;
+        }
+    }
+}
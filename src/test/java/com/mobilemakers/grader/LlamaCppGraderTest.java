@@ -0,0 +1,84 @@
+package com.mobilemakers.grader;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LlamaCppGraderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String RESPONSE = """
+            {"choices": [{"finish_reason": "stop", "message": {"content": "{\\"score\\": 8, \\"maxScore\\": 10}"}}]}
+            """;
+
+    private final List<String> slotsByRubric = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            String prompt = request.path("messages").get(1).path("content").asText();
+            slotsByRubric.add(prompt.substring(0, prompt.indexOf('\n')) + "@" + request.path("id_slot").asInt());
+            byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void sameRubricReturnsToItsSlotAndOtherRubricsTakeOtherSlots() throws IOException {
+        LlamaCppGrader grader = grader(3);
+
+        for (String rubric : List.of("Buttons", "Loops", "Buttons", "Optionals", "Loops", "Buttons")) {
+            grader.gradeSubmission("s100", prompt(rubric, "struct App {}"), ReasoningBudget.UNLIMITED);
+        }
+
+        assertEquals(List.of("Buttons@0", "Loops@1", "Buttons@0", "Optionals@2", "Loops@1", "Buttons@0"), slotsByRubric);
+        assertEquals(3, new HashSet<>(slotsByRubric).size());
+    }
+
+    @Test
+    void newRubricEvictsTheSlotUsedLongestAgo() throws IOException {
+        LlamaCppGrader grader = grader(2);
+
+        for (String rubric : List.of("Buttons", "Loops", "Buttons", "Optionals", "Buttons")) {
+            grader.gradeSubmission("s100", prompt(rubric, "let code = " + slotsByRubric.size()), ReasoningBudget.UNLIMITED);
+        }
+
+        // Loops was released before the second Buttons request, so Optionals replaces it
+        assertEquals(List.of("Buttons@0", "Loops@1", "Buttons@0", "Optionals@1", "Buttons@0"), slotsByRubric);
+    }
+
+    private LlamaCppGrader grader(int slots) {
+        return new LlamaCppGrader("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions",
+                "test-model", slots);
+    }
+
+    private static String prompt(String rubric, String code) {
+        return rubric + "\nGrade the submission against the rubric.\nSTUDENT CODE:\n" + code;
+    }
+}
@@ -0,0 +1,34 @@
+package com.mobilemakers.grader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReasoningBudgetTest {
+
+    @Test
+    void parsesAndNormalizesConfiguredValues() {
+        assertEquals(new ReasoningBudget("low", 4000), ReasoningBudget.parse(" LOW ", " 4000 "));
+        assertEquals(ReasoningBudget.UNLIMITED, ReasoningBudget.parse("  ", ""));
+        assertEquals(ReasoningBudget.UNLIMITED, ReasoningBudget.parse(null, null));
+    }
+
+    @Test
+    void rejectsUnknownEffortsAndInvalidTokenLimits() {
+        assertThrows(IllegalArgumentException.class, () -> ReasoningBudget.parse("extreme", null));
+        assertThrows(IllegalArgumentException.class, () -> ReasoningBudget.parse(null, "lots"));
+        assertThrows(IllegalArgumentException.class, () -> ReasoningBudget.parse(null, "0"));
+        assertThrows(IllegalArgumentException.class, () -> ReasoningBudget.parse(null, "-100"));
+    }
+
+    @Test
+    void orElseFillsOnlyFieldsThatAreNotSet() {
+        ReasoningBudget fallback = new ReasoningBudget("high", 8000);
+
+        assertEquals(new ReasoningBudget("low", 8000), new ReasoningBudget("low", null).orElse(fallback));
+        assertEquals(new ReasoningBudget("high", 2000), new ReasoningBudget(null, 2000).orElse(fallback));
+        assertEquals(fallback, ReasoningBudget.UNLIMITED.orElse(fallback));
+        assertEquals(new ReasoningBudget("minimal", 100), new ReasoningBudget("minimal", 100).orElse(fallback));
+    }
+}
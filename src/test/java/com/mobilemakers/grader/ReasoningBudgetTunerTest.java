@@ -0,0 +1,119 @@
+package com.mobilemakers.grader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mobilemakers.grader.model.GradingResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ReasoningBudgetTunerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String KEY = "8017693698:OpenAI (gpt-5-mini)";
+    private static final List<ReasoningBudgetTuner.Sample> SAMPLES = List.of(
+            new ReasoningBudgetTuner.Sample("s100", "prompt-a"),
+            new ReasoningBudgetTuner.Sample("s200", "prompt-b"));
+
+    @TempDir
+    Path resultsDir;
+
+    @Test
+    void triesEffortsCheapestFirstAndStopsAtTheFirstThatAgrees() {
+        List<String> calls = new ArrayList<>();
+        Script script = (student, effort) -> {
+            calls.add(student + "@" + effort);
+            return effort.equals("low") ? result(6.0, true, "stretch1") : result(8.0, true, "stretch1");
+        };
+
+        ReasoningBudgetTuner.TuningOutcome outcome = tuner(List.of("low", "medium")).tune(
+                KEY, "fp", new ReasoningBudget(null, 4000), SAMPLES, script::grade);
+
+        assertEquals(new ReasoningBudget("medium", 4000), outcome.budget());
+        assertEquals(List.of("s100@high", "s200@high", "s100@low", "s200@low", "s100@medium", "s200@medium"), calls);
+        assertEquals(List.of("s100", "s200"), List.copyOf(outcome.referenceResults().keySet()));
+        assertEquals(8.0, outcome.referenceResults().get("s100").score());
+    }
+
+    @Test
+    void agreementAllowsScoreToleranceAndStretchGoalsInAnyOrder() {
+        Script script = (student, effort) -> effort.equals("high")
+                ? result(8.0, true, "stretch1", "stretch2")
+                : result(8.5, true, "stretch2", "stretch1");
+
+        ReasoningBudget tuned = tuner(List.of("low")).tune(KEY, "fp", ReasoningBudget.UNLIMITED, SAMPLES, script::grade).budget();
+
+        assertEquals("low", tuned.effort());
+    }
+
+    @Test
+    void keepsReferenceEffortWhenMvpOrStretchGoalsDisagree() {
+        Script mvpDiffers = (student, effort) -> result(8.0, effort.equals("high"), "stretch1");
+        Script stretchDiffers = (student, effort) -> effort.equals("high") ? result(8.0, true, "stretch1") : result(8.0, true);
+        Script scoreOutsideTolerance = (student, effort) -> result(effort.equals("high") ? 8.0 : 7.0, true);
+
+        for (Script script : List.of(mvpDiffers, stretchDiffers, scoreOutsideTolerance)) {
+            ReasoningBudget tuned = tuner(List.of("low", "medium"))
+                    .tune(KEY, "fp", ReasoningBudget.UNLIMITED, SAMPLES, script::grade).budget();
+            assertEquals("high", tuned.effort());
+        }
+    }
+
+    @Test
+    void tunedEffortIsReloadedForTheSameRubricOnly() {
+        Script script = (student, effort) -> result(8.0, true);
+        tuner(List.of("minimal", "low")).tune(KEY, "fp", ReasoningBudget.UNLIMITED, SAMPLES, script::grade);
+
+        ReasoningBudgetTuner reloaded = tuner(List.of("minimal", "low"));
+        assertEquals(new ReasoningBudget("minimal", 2000), reloaded.getTunedBudget(KEY, "fp", new ReasoningBudget(null, 2000)));
+        assertNull(reloaded.getTunedBudget(KEY, "changed-rubric", ReasoningBudget.UNLIMITED));
+        assertNull(reloaded.getTunedBudget("other-assignment", "fp", ReasoningBudget.UNLIMITED));
+    }
+
+    @Test
+    void keepsConfiguredBudgetWhenNoReferenceCanBeGraded() {
+        ReasoningBudget configured = new ReasoningBudget(null, 4000);
+        ReasoningBudgetTuner tuner = tuner(List.of("low"));
+
+        ReasoningBudgetTuner.TuningOutcome outcome = tuner.tune(KEY, "fp", configured, SAMPLES, (student, prompt, budget) -> {
+            throw new IOException("model unavailable");
+        });
+
+        assertSame(configured, outcome.budget());
+        assertNull(tuner.getTunedBudget(KEY, "fp", configured));
+    }
+
+    private ReasoningBudgetTuner tuner(List<String> candidates) {
+        return new ReasoningBudgetTuner(resultsDir.toString(), candidates, SAMPLES.size(), 0.5);
+    }
+
+    private static GradingResult result(double score, boolean mvp, String... stretchGoals) {
+        try {
+            return MAPPER.readValue(MAPPER.writeValueAsString(Map.of(
+                    "score", score, "maxScore", 10, "mvpComplete", mvp, "stretchGoalsCompleted", List.of(stretchGoals))),
+                    GradingResult.class);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Result a model would return for a student at an effort level.
+     */
+    @FunctionalInterface
+    private interface Script {
+        GradingResult answer(String studentKey, String effort);
+
+        default GradingResult grade(String studentKey, String prompt, ReasoningBudget budget) {
+            return answer(studentKey, budget.effort());
+        }
+    }
+}
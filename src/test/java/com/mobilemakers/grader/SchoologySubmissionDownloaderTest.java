@@ -0,0 +1,204 @@
+package com.mobilemakers.grader;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchoologySubmissionDownloaderTest {
+
+    @TempDir
+    Path root;
+
+    private final SchoologySubmissionDownloader downloader =
+            new SchoologySubmissionDownloader("https://schoology.invalid", "cookie", "key", "token");
+
+    @Test
+    void extractsOnlyEachStudentsHighestNumberedRevision() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("Buttons/Doe, Jane - s100/Revision 2 - On time/App/ContentView.swift", "old");
+        entries.put("Buttons/Doe, Jane - s100/Revision 10 - Late/App/ContentView.swift", "newest");
+        entries.put("Buttons/Doe, Jane - s100/Revision 10 - Late/App/Views/Row.swift", "row");
+        entries.put("Buttons/Doe, Jane - s100/Revision 10 - Late/App/Contests/Bracket.swift", "bracket");
+        entries.put("Buttons/Doe, Jane - s100/Revision 10 - Late/AppTests/AppTests.swift", "test");
+        entries.put("Buttons/Doe, Jane - s100/Revision 2 - On time/App/Old.swift", "gone");
+        entries.put("Buttons/Doe, Jane - s100/Revision 10 - Late/App/Demo.mov", "video");
+        entries.put("Buttons/Doe, Jane - s100/Revision 10 - Late/App.xcodeproj/project.pbxproj", "// !$*UTF8*$!");
+        entries.put("Buttons/Doe, Jane - s100/Revision 10 - Late/__MACOSX/App/._ContentView.swift", "fork");
+        entries.put("Buttons/Roe, Rick - s200/Revision 1 - On time/Project.zip", "zip");
+        entries.put("Buttons/Teacher Notes/notes.txt", "ignored");
+        Path zip = writeZip(root.resolve("download.zip"), entries);
+
+        Path submissions = downloader.extractAndOrganizeSubmissions(zip, "Buttons Lab", root.resolve("submissions"));
+
+        assertEquals(root.resolve("submissions/Buttons_Lab"), submissions);
+        assertEquals("newest", Files.readString(submissions.resolve("s100/App/ContentView.swift")));
+        assertEquals("row", Files.readString(submissions.resolve("s100/App/Views/Row.swift")));
+        assertEquals("bracket", Files.readString(submissions.resolve("s100/App/Contests/Bracket.swift")));
+        assertFalse(Files.exists(submissions.resolve("s100/AppTests")));
+        assertFalse(Files.exists(submissions.resolve("s100/App/Old.swift")));
+        assertTrue(Files.exists(submissions.resolve("s100/App.xcodeproj/project.pbxproj")));
+        assertFalse(Files.exists(submissions.resolve("s100/App/Demo.mov")));
+        assertFalse(Files.exists(submissions.resolve("s100/__MACOSX")));
+        assertTrue(Files.exists(submissions.resolve("s200/Project.zip")));
+        assertFalse(Files.exists(submissions.resolve("Teacher Notes")));
+    }
+
+    @Test
+    void resyncRewritesOnlyChangedStudentsAndRemovesStaleOnes() throws Exception {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("Doe, Jane - s100/Revision 1 - On time/ContentView.swift", "first");
+        entries.put("Roe, Rick - s200/Revision 1 - On time/ContentView.swift", "unchanged");
+        entries.put("Poe, Pat - s300/Revision 1 - On time/ContentView.swift", "dropped");
+        Path submissions = downloader.extractAndOrganizeSubmissions(
+                writeZip(root.resolve("first.zip"), entries), "Buttons", root.resolve("submissions"));
+        Path marker = Files.writeString(submissions.resolve("s200/marker.txt"), "kept");
+
+        entries.remove("Poe, Pat - s300/Revision 1 - On time/ContentView.swift");
+        entries.put("Doe, Jane - s100/Revision 2 - Late/ContentView.swift", "second");
+        downloader.extractAndOrganizeSubmissions(
+                writeZip(root.resolve("second.zip"), entries), "Buttons", root.resolve("submissions"));
+
+        assertEquals("second", Files.readString(submissions.resolve("s100/ContentView.swift")));
+        assertTrue(Files.exists(marker), "unchanged student folder must not be rewritten");
+        assertFalse(Files.exists(submissions.resolve("s300")));
+    }
+
+    @Test
+    void publishesStagedSnapshotsAndKeepsOnlyThePreviousOne() throws Exception {
+        Path legacy = Files.createDirectories(root.resolve("submissions/Buttons/s100"));
+        Files.writeString(legacy.resolve("Old.swift"), "legacy");
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("Doe, Jane - s100/Revision 1 - On time/ContentView.swift", "first");
+
+        Path submissions = null;
+        for (int run = 0; run < 3; run++) {
+            entries.put("Doe, Jane - s100/Revision 1 - On time/ContentView.swift", "run " + run);
+            submissions = downloader.extractAndOrganizeSubmissions(
+                    writeZip(root.resolve("run" + run + ".zip"), entries), "Buttons", root.resolve("submissions"));
+        }
+
+        assertTrue(Files.isSymbolicLink(submissions));
+        assertEquals("run 2", Files.readString(submissions.resolve("s100/ContentView.swift")));
+        assertFalse(Files.exists(submissions.resolve("s100/Old.swift")));
+        try (Stream<Path> snapshots = Files.list(root.resolve("submissions/.snapshots/Buttons"))) {
+            assertEquals(2, snapshots.count(), "published snapshot plus the previous one");
+        }
+    }
+
+    @Test
+    void resumesPartialDownloadWithRangeRequest() throws Exception {
+        byte[] archive = classArchive();
+        int cut = archive.length / 2;
+        List<String> requests = new CopyOnWriteArrayList<>();
+        HttpServer server = archiveServer(archive, requests, true);
+        try {
+            // Left behind by a run whose connection dropped halfway
+            Path downloads = Files.createDirectories(root.resolve("downloads"));
+            Files.write(downloads.resolve("Buttons_42.zip.part"), Arrays.copyOf(archive, cut));
+            Files.writeString(downloads.resolve("Buttons_42.zip.part.json"),
+                    "{\"etag\":\"\\\"v1\\\"\",\"length\":" + archive.length + "}");
+
+            Path downloaded = downloaderFor(server).downloadSubmissions("42", "Buttons");
+
+            assertArrayEquals(archive, Files.readAllBytes(downloaded));
+            assertEquals(List.of("bytes=" + cut + "- if-range=\"v1\""), requests);
+            assertFalse(Files.exists(downloads.resolve("Buttons_42.zip.part")));
+            assertFalse(Files.exists(downloads.resolve("Buttons_42.zip.part.json")));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void restartsDownloadWhenServerIgnoresRange() throws Exception {
+        byte[] archive = classArchive();
+        List<String> requests = new CopyOnWriteArrayList<>();
+        HttpServer server = archiveServer(archive, requests, false);
+        try {
+            Path downloads = Files.createDirectories(root.resolve("downloads"));
+            Files.writeString(downloads.resolve("Buttons_42.zip.part"), "stale bytes");
+            Files.writeString(downloads.resolve("Buttons_42.zip.part.json"), "{\"etag\":\"\\\"v0\\\"\",\"length\":99}");
+
+            Path downloaded = downloaderFor(server).downloadSubmissions("42", "Buttons");
+
+            assertArrayEquals(archive, Files.readAllBytes(downloaded));
+            assertEquals(1, requests.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private byte[] classArchive() throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 40; i++) {
+            entries.put("Student " + i + " - s" + (100 + i) + "/Revision 1 - On time/ContentView.swift",
+                    "struct ContentView" + i + " {}\n" + Integer.toHexString(i * 7919).repeat(2000));
+        }
+        return Files.readAllBytes(writeZip(root.resolve("class.zip"), entries));
+    }
+
+    /**
+     * Stand-in for Schoology's download_all endpoint, optionally honouring Range requests.
+     */
+    private static HttpServer archiveServer(byte[] archive, List<String> requests, boolean ranges) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/assignment/42/dropbox/download_all", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            requests.add(range + " if-range=" + ifRange);
+            exchange.getResponseHeaders().add("Content-Type", "application/zip");
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            int from = 0;
+            if (ranges && range != null && "\"v1\"".equals(ifRange)) {
+                from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + from + "-" + (archive.length - 1) + "/" + archive.length);
+                exchange.sendResponseHeaders(206, archive.length - from);
+            } else {
+                exchange.sendResponseHeaders(200, archive.length);
+            }
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(archive, from, archive.length - from);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private SchoologySubmissionDownloader downloaderFor(HttpServer server) {
+        return new SchoologySubmissionDownloader("http://127.0.0.1:" + server.getAddress().getPort(),
+                "cookie", "key", "token", null, root.resolve("downloads"));
+    }
+
+    private static Path writeZip(Path zip, Map<String, String> entries) throws IOException {
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOut.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
@@ -0,0 +1,91 @@
+package com.mobilemakers.grader;
+
+import com.mobilemakers.grader.prompts.PromptConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StarterBaselineTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void hunksShowOnlyChangedLinesWithContext() {
+        List<String> starter = List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        List<String> submitted = List.of("a", "b", "c", "d", "E", "f", "g", "h", "i", "j", "k");
+
+        assertEquals(String.join("\n",
+                "@@ starter line 3 @@",
+                " c",
+                " d",
+                "-e",
+                "+E",
+                " f",
+                " g",
+                "@@ starter line 9 @@",
+                " i",
+                " j",
+                "+k"), StarterBaseline.hunks(starter, submitted));
+    }
+
+    @Test
+    void omitsUnchangedStarterFilesAndDiffsModifiedOnes() throws Exception {
+        Path starterDir = root.resolve("starters/Buttons");
+        String contentView = String.join("\n",
+                "import SwiftUI",
+                "",
+                "struct ContentView: View {",
+                "    @State private var count = 0",
+                "    @State private var title = \"Counter\"",
+                "    private let spacing: CGFloat = 16",
+                "",
+                "    var body: some View {",
+                "        VStack {",
+                "            Image(systemName: \"globe\")",
+                "            Text(\"Hello, world!\")",
+                "        }",
+                "        .padding()",
+                "        .navigationTitle(title)",
+                "        .font(.title)",
+                "    }",
+                "}",
+                "");
+        writeFile(starterDir.resolve("ButtonsApp.swift"), "@main\nstruct ButtonsApp: App {}\n");
+        writeFile(starterDir.resolve("ContentView.swift"), contentView);
+
+        Path student = root.resolve("submissions/s100");
+        writeFile(student.resolve("Buttons/ButtonsApp.swift"), "@main\nstruct ButtonsApp: App {}   \n");
+        writeFile(student.resolve("Buttons/ContentView.swift"),
+                contentView.replace("Text(\"Hello, world!\")", "Button(\"Tap\") { count += 1 }"));
+        writeFile(student.resolve("Buttons/Counter.swift"), "struct Counter {}");
+
+        SwiftFileReader reader = new SwiftFileReader(null, SourceOptions.VERBATIM.withStarterDirectory(starterDir));
+        String merged = reader.readLatestSubmission(student);
+
+        assertFalse(merged.contains("struct ButtonsApp"));
+        assertTrue(merged.contains("// File: ContentView.swift" + PromptConstants.STARTER_DIFF_LABEL));
+        assertTrue(merged.contains("-            Text(\"Hello, world!\")"));
+        assertTrue(merged.contains("+            Button(\"Tap\") { count += 1 }"));
+        assertFalse(merged.contains("import SwiftUI"));
+        assertTrue(merged.contains("// File: Counter.swift"));
+        assertTrue(merged.endsWith(PromptConstants.UNCHANGED_STARTER_FILES + "ButtonsApp.swift"));
+
+        String prompt = new AssignmentPrompt("Grade this:\n%s").buildPrompt(merged);
+        assertTrue(prompt.contains("Starter code from the assignment template has been removed"));
+        assertFalse(new AssignmentPrompt("%s").buildPrompt("struct Counter {}").contains("NOTE TO GRADER"));
+    }
+
+    private static void writeFile(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+}
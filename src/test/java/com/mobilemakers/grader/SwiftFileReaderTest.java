@@ -0,0 +1,479 @@
+package com.mobilemakers.grader;
+
+import com.mobilemakers.grader.prompts.PromptConstants;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwiftFileReaderTest {
+
+    @TempDir
+    Path submissionsRoot;
+
+    @Test
+    void readsNewestRevisionFolder() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("Jane Doe - s100"));
+        Path older = writeFile(student.resolve("Revision 1 - On time/App.swift"), "let version = 1");
+        Path newer = writeFile(student.resolve("Revision 2 - Late/App.swift"), "let version = 2");
+        Files.setLastModifiedTime(older.getParent(), FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(newer.getParent(), FileTime.fromMillis(2_000));
+
+        SwiftFileReader reader = new SwiftFileReader(null, SourceOptions.VERBATIM);
+
+        assertEquals(2, reader.findHighestRevision(student));
+        assertTrue(reader.readLatestSubmission(student).contains("let version = 2"));
+        assertTrue(reader.readSpecificRevision(student, 1).contains("let version = 1"));
+        assertEquals("", reader.readSpecificRevision(student, 3));
+    }
+
+    @Test
+    void mergesFolderContentsBeforeSiblingFilesWithSamePrefix() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s200"));
+        writeFile(student.resolve("Revision 1 - On time/Views.swift"), "// views");
+        writeFile(student.resolve("Revision 1 - On time/Views/Row.swift"), "// row");
+        writeFile(student.resolve("Revision 1 - On time/App.swift"), "// app");
+
+        String merged = new SwiftFileReader(null, SourceOptions.VERBATIM).readLatestSubmission(student);
+
+        assertTrue(merged.indexOf("// app") < merged.indexOf("// row"));
+        assertTrue(merged.indexOf("// row") < merged.indexOf("// views"));
+        assertTrue(merged.contains("// File: Views/Row.swift"));
+    }
+
+    @Test
+    void readsSwiftFilesFromZipSubmission() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s300"));
+        writeZip(student.resolve("project.zip"), Map.of(
+                "Project/ContentView.swift", "struct ContentView {}",
+                "Project/Assets.xcassets/Contents.json", "{}"));
+
+        String merged = new SwiftFileReader(null, SourceOptions.VERBATIM).readLatestSubmission(student);
+
+        assertTrue(merged.contains("// File: ContentView.swift"));
+        assertTrue(merged.contains("struct ContentView {}"));
+        assertFalse(merged.contains("Contents.json"));
+    }
+
+    @Test
+    void readsSwiftFilesFromZipNestedInsideZip() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s310"));
+        byte[] inner = zipBytes(Map.of(
+                "Inner/Model.swift", "struct Model {}".getBytes(StandardCharsets.UTF_8),
+                "Inner/video.mov", new byte[256 * 1024]));
+        try (OutputStream out = Files.newOutputStream(student.resolve("outer.zip"));
+             ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            zipOut.putNextEntry(new ZipEntry("Outer/App.swift"));
+            zipOut.write("@main struct App {}".getBytes(StandardCharsets.UTF_8));
+            zipOut.closeEntry();
+
+            // Stored (uncompressed) entry to exercise both read paths of the in-memory reader
+            ZipEntry stored = new ZipEntry("Outer/Inner.zip");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(inner.length);
+            stored.setCompressedSize(inner.length);
+            CRC32 crc = new CRC32();
+            crc.update(inner);
+            stored.setCrc(crc.getValue());
+            zipOut.putNextEntry(stored);
+            zipOut.write(inner);
+            zipOut.closeEntry();
+        }
+
+        ZipCentralDirectory archive = ZipCentralDirectory.open(inner);
+        ZipCentralDirectory.Entry model = archive.entries().stream()
+                .filter(entry -> entry.name().endsWith("Model.swift"))
+                .findFirst()
+                .orElseThrow();
+        try (InputStream input = archive.openStream(model)) {
+            assertEquals("struct Model {}", new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        String merged = new SwiftFileReader(null, SourceOptions.VERBATIM).readLatestSubmission(student);
+
+        assertTrue(merged.contains("@main struct App {}"));
+        assertTrue(merged.contains("// File: Model.swift"));
+        assertTrue(merged.contains("struct Model {}"));
+    }
+
+    @Test
+    void readsSubmissionsStraightFromClassArchive() throws Exception {
+        byte[] older = "let version = 1".getBytes(StandardCharsets.UTF_8);
+        byte[] newer = "let version = 2".getBytes(StandardCharsets.UTF_8);
+        // Zip file systems synthesize folder times, so the revision number must win whatever the entry order
+        for (boolean newestFirst : new boolean[]{false, true}) {
+            Map<String, byte[]> entries = new LinkedHashMap<>();
+            entries.put("Buttons/Doe, Jane - s100/Revision " + (newestFirst ? "2 - Late" : "1 - On time") + "/App.swift",
+                    newestFirst ? newer : older);
+            entries.put("Buttons/Doe, Jane - s100/Revision " + (newestFirst ? "1 - On time" : "2 - Late") + "/App.swift",
+                    newestFirst ? older : newer);
+            entries.put("Buttons/Roe, Rick - s200/Revision 1 - On time/Project.zip", zipBytes(Map.of(
+                    "Project/ContentView.swift", "struct ContentView {}".getBytes(StandardCharsets.UTF_8))));
+            Path downloads = Files.createDirectories(submissionsRoot.resolve(newestFirst ? "newest-first" : "oldest-first"));
+            Path classZip = downloads.resolve("Buttons_42.zip");
+            writeZipBytes(classZip, entries);
+
+            Map<String, String> submissions = new HashMap<>();
+            try (SubmissionArchive archive = SubmissionArchive.open(classZip);
+                 Stream<StudentSubmission> stream = new SwiftFileReader(null, SourceOptions.VERBATIM)
+                         .streamStudentSubmissions(archive.root())) {
+                for (StudentSubmission submission : stream.toList()) {
+                    submissions.put(submission.studentKey(), submission.loadCode());
+                }
+            }
+
+            assertEquals(Set.of("s100", "s200"), submissions.keySet());
+            assertTrue(submissions.get("s100").contains("let version = 2"));
+            assertFalse(submissions.get("s100").contains("let version = 1"));
+            assertTrue(submissions.get("s200").contains("struct ContentView {}"));
+            try (Stream<Path> files = Files.list(downloads)) {
+                assertEquals(List.of(classZip), files.toList(), "nothing is extracted next to the archive");
+            }
+        }
+    }
+
+    @Test
+    void archiveEntriesAreIndexedAndHashLikeTheExtractedFolder(@TempDir Path resultsDir) throws Exception {
+        Path classZip = submissionsRoot.resolve("Buttons_42.zip");
+        writeZipBytes(classZip, Map.of(
+                "Buttons/Doe, Jane - s100/Revision 1 - On time/App.swift", "let version = 1".getBytes(StandardCharsets.UTF_8),
+                "Buttons/Doe, Jane - s100/Revision 2 - Late/App.swift", "let version = 2".getBytes(StandardCharsets.UTF_8)));
+        Path extracted = Files.createDirectories(submissionsRoot.resolve("Buttons/s100"));
+        writeFile(extracted.resolve("App.swift"), "let version = 2");
+
+        String archiveHash;
+        try (SubmissionArchive archive = SubmissionArchive.open(classZip)) {
+            SwiftFileReader firstRun = new SwiftFileReader(new SubmissionIndex(resultsDir.toString()));
+            archiveHash = firstRun.sourceHash(SubmissionManifest.scan(archive.root().resolve("Doe, Jane - s100")));
+            firstRun.saveIndex();
+        }
+        SwiftFileReader extractedRun = new SwiftFileReader(new SubmissionIndex(resultsDir.resolve("extracted").toString()));
+        assertEquals(archiveHash, extractedRun.sourceHash(SubmissionManifest.scan(extracted)),
+                "switching GRADE_FROM_ARCHIVE does not re-grade an unchanged submission");
+
+        // The saved index still knows the entry, so the next run does not read it again
+        SubmissionIndex index = new SubmissionIndex(resultsDir.toString());
+        try (SubmissionArchive archive = SubmissionArchive.open(classZip)) {
+            SwiftFileReader secondRun = new SwiftFileReader(index);
+            assertEquals(archiveHash, secondRun.sourceHash(SubmissionManifest.scan(archive.root().resolve("Doe, Jane - s100"))));
+        }
+        assertTrue(index.getSummary().contains("1 file(s) unchanged, 0 hashed"));
+    }
+
+    @Test
+    void oversizedArchiveEntriesAreSkippedAndReportedInsteadOfInflated() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s320"));
+        // Highly compressible: a few KB on disk, 512 KB once inflated
+        byte[] bomb = ("//" + " ".repeat(510) + "\n").repeat(1024).getBytes(StandardCharsets.UTF_8);
+        byte[] inner = zipBytes(Map.of(
+                "Inner/Model.swift", "struct Model {}".getBytes(StandardCharsets.UTF_8),
+                "Inner/Bomb.swift", bomb));
+        writeZipBytes(student.resolve("outer.zip"), Map.of(
+                "Outer/App.swift", "@main struct App {}".getBytes(StandardCharsets.UTF_8),
+                "Outer/Huge.swift", bomb,
+                "Outer/Inner.zip", inner));
+
+        ExtractionLimits limits = new ExtractionLimits(64 * 1024, 1024 * 1024, 100, 16 * 1024 * 1024);
+        String merged = new SwiftFileReader(null, SourceOptions.VERBATIM, limits).readLatestSubmission(student);
+
+        assertTrue(merged.contains("@main struct App {}"));
+        assertTrue(merged.contains("struct Model {}"));
+        assertFalse(merged.contains("// File: Huge.swift"));
+        assertFalse(merged.contains("// File: Bomb.swift"));
+        assertTrue(merged.contains(PromptConstants.TRUNCATED_SUBMISSION));
+        assertTrue(merged.contains("Huge.swift"));
+    }
+
+    @Test
+    void nestedZipIsChargedOnlyForWhatIsInflatedFromIt() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s330"));
+        // 48 KB of poorly compressible source; the inner ZIP and its entry together exceed 64 KB
+        Random random = new Random(330);
+        StringBuilder source = new StringBuilder();
+        while (source.length() < 48 * 1024) {
+            source.append("let s = \"");
+            random.ints(60, 'a', 'z' + 1).forEach(c -> source.append((char) c));
+            source.append("\"\n");
+        }
+        byte[] inner = zipBytes(Map.of("Inner/Strings.swift", source.toString().getBytes(StandardCharsets.UTF_8)));
+        writeZipBytes(student.resolve("outer.zip"), Map.of("Outer/Inner.zip", inner));
+
+        ExtractionLimits limits = new ExtractionLimits(64 * 1024, 64 * 1024, 100, 16 * 1024 * 1024);
+        String merged = new SwiftFileReader(null, SourceOptions.VERBATIM, limits).readLatestSubmission(student);
+
+        assertTrue(merged.contains("// File: Strings.swift"));
+        assertFalse(merged.contains(PromptConstants.TRUNCATED_SUBMISSION));
+    }
+
+    @Test
+    void fallsBackToLooseSwiftFilesAndReportsDirectSubmissionAsRevisionOne() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s400"));
+        writeFile(student.resolve("main.swift"), "print(\"hi\")");
+        Files.createDirectories(student.resolve("Empty"));
+
+        SwiftFileReader reader = new SwiftFileReader(null, SourceOptions.VERBATIM);
+
+        assertEquals(1, reader.findHighestRevision(student));
+        assertTrue(reader.readLatestSubmission(student).contains("print(\"hi\")"));
+    }
+
+    @Test
+    void manifestRecordsCandidatesAndFilesFromOneWalk() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s500"));
+        writeFile(student.resolve("Revision 3 - On time/A.swift"), "a");
+        writeFile(student.resolve("Revision 3 - On time/Nested/B.swift"), "bb");
+        writeFile(student.resolve("Revision 3 - On time/readme.txt"), "ignored");
+        writeZip(student.resolve("Revision 3 - On time/Extra.zip"), Map.of("C.swift", "c"));
+
+        SubmissionManifest manifest = SubmissionManifest.scan(student);
+
+        assertEquals(3, manifest.highestRevision());
+        assertEquals(1, manifest.candidates().size());
+        List<String> files = manifest.filesUnder(manifest.revision(3)).stream()
+                .map(entry -> entry.relativePath().toString().replace('\\', '/'))
+                .collect(Collectors.toList());
+        assertEquals(List.of("Revision 3 - On time/A.swift", "Revision 3 - On time/Extra.zip",
+                "Revision 3 - On time/Nested/B.swift"), files);
+    }
+
+    @Test
+    void fingerprintIgnoresTimestampsButTracksFileChanges() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s600"));
+        Path app = writeFile(student.resolve("App.swift"), "let a = 1");
+        String original = SubmissionManifest.scan(student).fingerprint();
+
+        Files.setLastModifiedTime(app, FileTime.fromMillis(5_000));
+        assertEquals(original, SubmissionManifest.scan(student).fingerprint());
+
+        writeFile(app, "let a = 10");
+        assertNotEquals(original, SubmissionManifest.scan(student).fingerprint());
+
+        writeFile(app, "let a = 1");
+        writeFile(student.resolve("Extra.swift"), "");
+        assertNotEquals(original, SubmissionManifest.scan(student).fingerprint());
+    }
+
+    @Test
+    void decodesMultiByteCharactersAcrossBufferBoundariesAndMappedFiles() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s700"));
+        String small = "let label = \"" + "héllo wörld 🚀 ".repeat(8_000) + "\"";
+        String large = "let big = \"" + "ü🚀".repeat(300_000) + "\"";
+        writeFile(student.resolve("Revision 1 - On time/A.swift"), small);
+        writeFile(student.resolve("Revision 1 - On time/B.swift"), large);
+
+        String merged = new SwiftFileReader(null, SourceOptions.VERBATIM).readLatestSubmission(student);
+
+        String separator = System.lineSeparator();
+        assertEquals("// File: A.swift" + separator + small + separator + separator
+                + "// File: B.swift" + separator + large, merged);
+    }
+
+    @Test
+    void submissionIndexReusesHashesAndStoredMergesAcrossRuns(@TempDir Path resultsDir) throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s800"));
+        Path app = writeFile(student.resolve("App.swift"), "let a = 1");
+
+        SwiftFileReader firstRun = new SwiftFileReader(new SubmissionIndex(resultsDir.toString()));
+        SubmissionManifest manifest = SubmissionManifest.scan(student);
+        String hash = firstRun.sourceHash(manifest);
+        String merged = firstRun.readLatestSubmission(manifest, hash);
+        firstRun.saveIndex();
+
+        SubmissionIndex index = new SubmissionIndex(resultsDir.toString());
+        SwiftFileReader secondRun = new SwiftFileReader(index);
+        assertEquals(hash, secondRun.sourceHash(SubmissionManifest.scan(student)));
+        assertEquals(merged, secondRun.readLatestSubmission(SubmissionManifest.scan(student), hash));
+        assertTrue(index.getSummary().contains("1 file(s) unchanged, 0 hashed, 1 submission(s) served"));
+
+        // Same size, different content: the stat check misses and the file is re-hashed
+        writeFile(app, "let b = 2");
+        Files.setLastModifiedTime(app, FileTime.fromMillis(Files.getLastModifiedTime(app).toMillis() + 5_000));
+        assertNotEquals(hash, secondRun.sourceHash(SubmissionManifest.scan(student)));
+    }
+
+    @Test
+    void oversizedSubmissionKeepsFilesMostRelevantToTheRubric() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s900"));
+        String filler = "    let padding = 0\n".repeat(60);
+        writeFile(student.resolve("Revision 1 - On time/AppTests.swift"), "final class AppTests {\n" + filler + "}");
+        writeFile(student.resolve("Revision 1 - On time/ContentView.swift"),
+                "struct ContentView: View {\n    @State var showAlert = false\n" + filler + "}");
+        writeFile(student.resolve("Revision 1 - On time/Theme.swift"), "enum Theme {\n" + filler + "}\nfunc tint() {}");
+
+        List<String> keywords = RelevanceRanker.keywords(
+                "Button action sets `showAlert = true` and uses .clipShape(Circle()); report mvpComplete");
+        assertEquals(List.of("showalert", "clipshape", "circle"), keywords);
+
+        SourceOptions options = SourceOptions.VERBATIM.withMaxChars(2_000).withRelevanceKeywords(keywords);
+        String merged = new SwiftFileReader(null, options).readLatestSubmission(student);
+
+        assertTrue(merged.length() <= 2_000);
+        assertTrue(merged.contains("struct ContentView: View {"));
+        assertFalse(merged.contains("final class AppTests {"));
+        assertTrue(merged.contains("AppTests.swift (62 lines): class AppTests"));
+        assertTrue(merged.contains("Theme.swift (63 lines): enum Theme, func tint"));
+    }
+
+    @Test
+    void oversizedMostRelevantFileIsTruncatedRatherThanDropped() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s910"));
+        writeFile(student.resolve("ContentView.swift"),
+                "struct ContentView: View {\n    @State var showAlert = false\n" + "    let padding = 0\n".repeat(200) + "}");
+        writeFile(student.resolve("Model.swift"), "struct Model {\n    let name = \"\"\n}");
+
+        SourceOptions options = SourceOptions.VERBATIM.withMaxChars(2_000).withRelevanceKeywords(List.of("showalert"));
+        String merged = new SwiftFileReader(null, options).readLatestSubmission(student);
+
+        assertTrue(merged.contains("@State var showAlert = false"));
+        assertTrue(merged.contains(PromptConstants.TRUNCATED_FILE));
+        assertFalse(merged.contains("let name = \"\""));
+        assertTrue(merged.contains("Model.swift (3 lines): struct Model"));
+    }
+
+    @Test
+    void readsOnlyAppTargetSourcesFromXcodeProject() throws Exception {
+        Path student = Files.createDirectories(submissionsRoot.resolve("s950"));
+        Path revision = student.resolve("Revision 1 - On time");
+        writeFile(revision.resolve("Counter/Counter.xcodeproj/project.pbxproj"), PBXPROJ);
+        writeFile(revision.resolve("Counter/Counter/ContentView.swift"), "struct ContentView {}");
+        writeFile(revision.resolve("Counter/Counter/CounterApp.swift"), "@main struct CounterApp {}");
+        writeFile(revision.resolve("Counter/Counter/Scratch.swift"), "// not in any target");
+        writeFile(revision.resolve("Counter/CounterTests/CounterTests.swift"), "final class CounterTests {}");
+        writeFile(revision.resolve("Counter/DerivedData/Build/Generated.swift"), "// build output");
+        writeFile(revision.resolve("__MACOSX/Counter/._ContentView.swift"), "binary junk");
+        Path copyProject = writeFile(revision.resolve("Counter copy/Counter.xcodeproj/project.pbxproj"), PBXPROJ);
+        writeFile(revision.resolve("Counter copy/Counter/ContentView.swift"), "struct OldContentView {}");
+        Files.setLastModifiedTime(copyProject, FileTime.fromMillis(1_000));
+
+        SubmissionManifest manifest = SubmissionManifest.scan(student);
+        String merged = new SwiftFileReader(null, SourceOptions.VERBATIM).readLatestSubmission(manifest);
+
+        assertEquals(List.of("Revision 1 - On time/Counter/Counter/ContentView.swift",
+                "Revision 1 - On time/Counter/Counter/CounterApp.swift"), manifest.files().stream()
+                .map(entry -> entry.relativePath().toString().replace('\\', '/'))
+                .collect(Collectors.toList()));
+        assertTrue(merged.contains("struct ContentView {}"));
+        assertFalse(merged.contains("OldContentView"));
+        assertEquals(List.of("Sources/App", "Core"), ProjectSources.packageSourceDirectories("""
+                targets: [
+                    .executableTarget(name: "App", dependencies: ["Core"]),
+                    .target(name: "Core", path: "Core/"),
+                    .testTarget(name: "AppTests", dependencies: ["App"])
+                ]
+                """));
+    }
+
+    @Test
+    void folderSyncedProjectKeepsSyncedSourcesNextToExplicitOnes() {
+        String synced = PBXPROJ.replace("\t\tAA0000000000000000000021 /* Sources */ = {",
+                "\t\tAA0000000000000000000041 /* Counter */ = {isa = PBXFileSystemSynchronizedRootGroup; path = Counter; sourceTree = \"<group>\"; };\n"
+                        + "\t\tAA0000000000000000000021 /* Sources */ = {");
+        ProjectSources sources = ProjectSources.from(List.of(
+                new ProjectSources.ProjectFile("Counter.xcodeproj/project.pbxproj", synced, 0, "")));
+
+        assertTrue(sources.includes("Counter/ContentView.swift"));
+        assertTrue(sources.includes("Counter/Views/RowView.swift"), "synced file without a build file entry");
+        assertFalse(sources.includes("CounterTests/CounterTests.swift"));
+        assertFalse(sources.includes("CounterUITests/CounterUITests.swift"));
+        assertFalse(sources.includes("Tests/CounterTests.swift"));
+        assertTrue(sources.includes("Counter/Contests/Bracket.swift"), "a folder name ending in \"tests\" is not a test target");
+        assertTrue(sources.includes("Counter/Latests/Feed.swift"));
+    }
+
+    private static final String PBXPROJ = """
+            // !$*UTF8*$!
+            {
+            \tobjects = {
+            \t\tAA0000000000000000000001 /* ContentView.swift in Sources */ = {isa = PBXBuildFile; fileRef = AA0000000000000000000011 /* ContentView.swift */; };
+            \t\tAA0000000000000000000002 /* CounterApp.swift in Sources */ = {isa = PBXBuildFile; fileRef = AA0000000000000000000012 /* CounterApp.swift */; };
+            \t\tAA0000000000000000000003 /* CounterTests.swift in Sources */ = {isa = PBXBuildFile; fileRef = AA0000000000000000000013 /* CounterTests.swift */; };
+            \t\tAA0000000000000000000021 /* Sources */ = {
+            \t\t\tisa = PBXSourcesBuildPhase;
+            \t\t\tfiles = (
+            \t\t\t\tAA0000000000000000000001 /* ContentView.swift in Sources */,
+            \t\t\t\tAA0000000000000000000002 /* CounterApp.swift in Sources */,
+            \t\t\t);
+            \t\t};
+            \t\tAA0000000000000000000022 /* Sources */ = {
+            \t\t\tisa = PBXSourcesBuildPhase;
+            \t\t\tfiles = (
+            \t\t\t\tAA0000000000000000000003 /* CounterTests.swift in Sources */,
+            \t\t\t);
+            \t\t};
+            \t\tAA0000000000000000000031 /* Counter */ = {
+            \t\t\tisa = PBXNativeTarget;
+            \t\t\tbuildPhases = (
+            \t\t\t\tAA0000000000000000000021 /* Sources */,
+            \t\t\t);
+            \t\t\tname = Counter;
+            \t\t\tproductType = "com.apple.product-type.application";
+            \t\t};
+            \t\tAA0000000000000000000032 /* CounterTests */ = {
+            \t\t\tisa = PBXNativeTarget;
+            \t\t\tbuildPhases = (
+            \t\t\t\tAA0000000000000000000022 /* Sources */,
+            \t\t\t);
+            \t\t\tname = CounterTests;
+            \t\t\tproductType = "com.apple.product-type.bundle.unit-test";
+            \t\t};
+            \t};
+            \trootObject = AA0000000000000000000041 /* Project object */;
+            }
+            """;
+
+    private static Path writeFile(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] zipBytes(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOut = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOut.write(entry.getValue());
+                zipOut.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeZipBytes(Path zip, Map<String, byte[]> entries) throws IOException {
+        Files.createDirectories(zip.getParent());
+        Files.write(zip, zipBytes(entries));
+    }
+
+    private static void writeZip(Path zip, Map<String, String> entries) throws IOException {
+        Files.createDirectories(zip.getParent());
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zipOut.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOut.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.mobilemakers.grader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SwiftMinifierTest {
+
+    @Test
+    void stripsCommentsAndWhitespaceButKeepsStringLiterals() {
+        String source = String.join("\n",
+                "// Header comment",
+                "import SwiftUI",
+                "",
+                "/* outer /* nested */ still comment */",
+                "struct ContentView: View {   // trailing",
+                "    let url = \"https://example.com\"   ",
+                "    let raw = #\"a \"quoted\" // not a comment\"#",
+                "    let greeting = \"Hi \\(name /* inside */ + \")\")!\"  /* gone */",
+                "    let poem = \"\"\"",
+                "        roses   are red",
+                "",
+                "        // kept",
+                "        \"\"\"",
+                "    var body:    some View { Text(url) }",
+                "}",
+                "");
+
+        String minified = SwiftMinifier.minify(source);
+
+        assertEquals(String.join("\n",
+                "import SwiftUI",
+                "struct ContentView: View {",
+                "    let url = \"https://example.com\"",
+                "    let raw = #\"a \"quoted\" // not a comment\"#",
+                "    let greeting = \"Hi \\(name + \")\")!\"",
+                "    let poem = \"\"\"",
+                "        roses   are red",
+                "",
+                "        // kept",
+                "        \"\"\"",
+                "    var body: some View { Text(url) }",
+                "}"), minified);
+    }
+
+    @Test
+    void removesPreviewMacrosAndProviders() {
+        String source = String.join("\n",
+                "struct RowView: View {",
+                "    var body: some View { Text(\"}\") }",
+                "}",
+                "",
+                "#Preview {",
+                "    RowView()",
+                "}",
+                "",
+                "struct RowView_Previews: PreviewProvider {",
+                "    static var previews: some View {",
+                "        RowView()",
+                "    }",
+                "}",
+                "");
+
+        String minified = SwiftMinifier.minify(source);
+
+        assertEquals(String.join("\n",
+                "struct RowView: View {",
+                "    var body: some View { Text(\"}\") }",
+                "}"), minified);
+    }
+
+    @Test
+    void recognizesExcludedAndGeneratedFiles() {
+        assertTrue(SwiftMinifier.isExcludedFile("Project/Package.swift"));
+        assertTrue(SwiftMinifier.isExcludedFile("Strings.generated.swift"));
+        assertFalse(SwiftMinifier.isExcludedFile("PackageView.swift"));
+        assertNotNull(SwiftMinifier.generatorBanner("// swiftlint:disable all\n// Generated using SwiftGen — https://github.com/SwiftGen/SwiftGen\nenum L10n {}"));
+        assertNotNull(SwiftMinifier.generatorBanner("//\n// This is a generated file, do not edit!\n// Generated by R.swift\nstruct R {}"));
+        assertNull(SwiftMinifier.generatorBanner("struct Model {}"));
+        // A student's own header comment is not a generator banner
+        assertNull(SwiftMinifier.generatorBanner("// Do not edit this view's layout, it matches the mockup\nstruct RowView {}"));
+        assertNull(SwiftMinifier.generatorBanner("//\n//  ContentView.swift\n//  Generated by Jane for the Buttons lab\nstruct ContentView {}"));
+    }
+
+    @Test
+    void minifiedMergeSkipsExcludedFilesAndUsesSeparateStoreEntry(@TempDir Path root) throws Exception {
+        Path student = Files.createDirectories(root.resolve("submissions/s100"));
+        Files.writeString(student.resolve("App.swift"), "// comment\n@main   struct App {}\n", StandardCharsets.UTF_8);
+        Files.writeString(student.resolve("Package.swift"), "let package = Package()", StandardCharsets.UTF_8);
+
+        SubmissionIndex index = new SubmissionIndex(root.resolve("results").toString());
+        SwiftFileReader verbatim = new SwiftFileReader(index);
+        SwiftFileReader minifying = verbatim.withOptions(new SourceOptions(true));
+        SubmissionManifest manifest = SubmissionManifest.scan(student);
+
+        String merged = minifying.readLatestSubmission(manifest);
+        assertEquals("// File: App.swift" + System.lineSeparator() + "@main struct App {}", merged);
+        assertTrue(verbatim.readLatestSubmission(manifest).contains("Package()"));
+
+        // Minifying does not make the submission look changed, but its merge is stored separately
+        String sourceHash = verbatim.sourceHash(manifest);
+        assertEquals(sourceHash, minifying.sourceHash(manifest));
+        assertTrue(verbatim.readLatestSubmission(manifest, sourceHash).contains("Package()"));
+        assertEquals(merged, minifying.readLatestSubmission(manifest, sourceHash));
+    }
+}